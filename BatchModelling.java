@@ -0,0 +1,289 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch modelling of many instruments in one process. The price files come
+ * from a directory (every '.csv' file in it) or from a manifest with one path
+ * per line. The instruments are split recursively into tasks on a
+ * work-stealing pool. Each task loads one price file, builds its features and
+ * either runs its own single-threaded GA or hands its packed rows to one
+ * pooled GA that is trained on the training rows of every instrument. The
+ * best rule and test metrics of every instrument are written to a single CSV
+ * file in the order of the input.
+ *
+ * Usage: java BatchModelling directory|manifest [output] [threads] [pooled]
+ */
+class BatchModelling {
+
+    // outcome for one instrument
+    static class Result {
+        final File file;
+        int rows;
+        long rule;
+        double fitness;
+        int testInstances;
+        int testCorrect;
+        long millis;
+        String error;
+
+        // packed training data followed by packed testing data, only kept for
+        // pooled training
+        long[][] split;
+
+        Result(File file) {
+            this.file = file;
+        }
+
+        double testAccuracy() {
+            return testInstances == 0 ? 0.0 : (double) testCorrect / testInstances;
+        }
+    }
+
+    private final List<File> files;
+    private final GAConfig config;
+    private final int threads;
+    private final boolean pooled;
+    final Result[] results;
+
+    /**
+     * @param files,   price files, one per instrument
+     * @param config,  parameters of every GA run; its seed, if any, seeds the run
+     *                 of every instrument through Rng.streamSeed
+     * @param threads, number of instruments worked on at the same time, and
+     *                 threads of the pooled GA
+     * @param pooled,  true to train one rule on every instrument, false for one
+     *                 rule per instrument
+     */
+    BatchModelling(List<File> files, GAConfig config, int threads, boolean pooled) {
+        this.files = files;
+        this.config = config;
+        this.threads = threads;
+        this.pooled = pooled;
+        this.results = new Result[files.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new Result(files.get(i));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java BatchModelling directory|manifest [output] [threads] [pooled]");
+            return;
+        }
+        File output = new File(args.length > 1 ? args[1] : "batch.csv");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean pooled = args.length > 3 && args[3].equals("pooled");
+        GAConfig config = Modelling.gaConfig(1).toBuilder().checkpoint(null, 1).build();
+
+        List<File> files = instruments(new File(args[0]));
+        BatchModelling batch = new BatchModelling(files, config, threads, pooled);
+        long start = System.nanoTime();
+        batch.run();
+        batch.write(output);
+        int failed = 0;
+        for (Result result : batch.results) {
+            if (result.error != null) {
+                failed++;
+            }
+        }
+        System.out.println(files.size() + " instruments (" + failed + " failed) in "
+                + (System.nanoTime() - start) / 1000000 + " ms, written to " + output);
+    }
+
+    /**
+     * function that lists the price files of a directory, or the paths in a
+     * manifest. Blank lines and lines starting with '#' in a manifest are skipped
+     * and relative paths are taken from the manifest's directory
+     *
+     * @param source, directory or manifest
+     * @return price files, in name order for a directory and in file order for a
+     *         manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    static List<File> instruments(File source) throws IOException {
+        List<File> files = new ArrayList<File>();
+        if (source.isDirectory()) {
+            File[] listed = source.listFiles();
+            if (listed != null) {
+                Arrays.sort(listed);
+                for (File file : listed) {
+                    if (file.isFile() && file.getName().endsWith(".csv")) {
+                        files.add(file);
+                    }
+                }
+            }
+            return files;
+        }
+        for (String line : Files.readAllLines(source.toPath())) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            File file = new File(line);
+            if (!file.isAbsolute()) {
+                file = new File(source.getAbsoluteFile().getParentFile(), line);
+            }
+            files.add(file);
+        }
+        return files;
+    }
+
+    // function that models every instrument, then trains the pooled rule if
+    // asked to
+    void run() {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.invoke(new InstrumentTask(0, results.length));
+        } finally {
+            pool.shutdown();
+        }
+        if (pooled) {
+            trainPooled();
+        }
+    }
+
+    // task that works on a range of instruments, splitting it until one is left
+    private class InstrumentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        InstrumentTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    model(from);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new InstrumentTask(from, mid), new InstrumentTask(mid, to));
+            }
+        }
+    }
+
+    /**
+     * function that loads one instrument, builds its features and, unless the
+     * rule is pooled, runs its GA. A file that cannot be read or modelled (bad
+     * prices, a GA failure) is recorded as an error and does not stop the batch
+     *
+     * @param index, position of the instrument
+     */
+    private void model(int index) {
+        Result result = results[index];
+        long start = System.nanoTime();
+        try {
+            PriceSeries series = PriceLoader.load(result.file);
+            FeatureMatrix features = Modelling.createInputData(series, config.registry);
+            long[] rows = features.packRows(0, features.rows);
+            int trainingSize = (int) Math.round(rows.length * config.training);
+            long[][] split = { Arrays.copyOfRange(rows, 0, trainingSize),
+                    Arrays.copyOfRange(rows, trainingSize, rows.length) };
+            result.rows = rows.length;
+            if (pooled) {
+                result.split = split;
+            } else if (trainingSize == 0) {
+                result.error = "no training rows";
+            } else {
+                Rng random = config.seeded ? new Rng(Rng.streamSeed(config.seed, index)) : Rng.unseeded();
+                GA ga = new GA(config, split, null, random);
+                try {
+                    ga.run();
+                } finally {
+                    ga.close();
+                }
+                int best = ga.best();
+                record(result, ga.population[best], ga.fitness[best], split[1]);
+            }
+        } catch (IOException | RuntimeException e) {
+            result.error = e.toString();
+        }
+        result.millis = (System.nanoTime() - start) / 1000000;
+    }
+
+    // function that trains one rule on the training rows of every instrument and
+    // tests it on the testing rows of each
+    private void trainPooled() {
+        int total = 0;
+        for (Result result : results) {
+            if (result.split != null) {
+                total += result.split[0].length;
+            }
+        }
+        if (total == 0) {
+            return;
+        }
+        long[] training = new long[total];
+        int offset = 0;
+        for (Result result : results) {
+            if (result.split != null) {
+                System.arraycopy(result.split[0], 0, training, offset, result.split[0].length);
+                offset += result.split[0].length;
+            }
+        }
+        Rng random = config.seeded ? new Rng(config.seed) : Rng.unseeded();
+        GA ga = new GA(config.toBuilder().threads(threads).build(), new long[][] { training, new long[0] }, null,
+                random);
+        ga.run();
+        ga.close();
+        int best = ga.best();
+        for (Result result : results) {
+            if (result.split != null) {
+                record(result, ga.population[best], ga.fitness[best], result.split[1]);
+                result.split = null;
+            }
+        }
+    }
+
+    // function that stores a rule and its test metrics in a result
+    private void record(Result result, long rule, double fitness, long[] testing) {
+        int[] test = GA.testResult(rule, testing, config.registry.labelBit(), config.registry.pairMask());
+        result.rule = rule;
+        result.fitness = fitness;
+        result.testInstances = test[0];
+        result.testCorrect = test[1];
+    }
+
+    /**
+     * function that writes one line per instrument to a CSV file, through a
+     * temporary file so a reader never sees half a batch
+     *
+     * @param file, output file
+     * @throws IOException if the file cannot be written
+     */
+    void write(File file) throws IOException {
+        File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(temp), 1 << 16)) {
+            out.write("instrument,rows,fitness,instances,correct,accuracy,millis,rule,error");
+            out.newLine();
+            for (Result r : results) {
+                out.write(String.format(Locale.ROOT, "%s,%d,%.6f,%d,%d,%.4f,%d,%s,%s", quote(r.file.getPath()),
+                        r.rows, r.fitness, r.testInstances, r.testCorrect, r.testAccuracy(), r.millis,
+                        r.error == null ? quote(config.registry.describe(r.rule).trim()) : "",
+                        r.error == null ? "" : quote(r.error)));
+                out.newLine();
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // function that quotes a CSV field
+    private static String quote(String field) {
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,418 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Micro-benchmarks for the modelling and GA hot paths, run on synthetic price
+ * series. Each benchmark is warmed up and then timed in the style of a JMH
+ * average-time run: it is repeated until the measurement time has passed and
+ * the mean time per operation is reported, with every result fed into a sink
+ * so the JIT cannot drop the work.
+ * 
+ * Usage: java Benchmarks [filter] [rows,...] [populations,...]
+ * 
+ * filter is a substring of the benchmark names (or "all"), rows defaults to
+ * 1000,100000,1000000 and populations to 100,1000,10000. The row scan
+ * benchmarks (evaluate.serial, evaluate.parallel, tournamentSelection and
+ * generation, whose GA scores with the row scan) are skipped when rows times
+ * population is over maxRowScanWork, as one operation would take seconds.
+ * 
+ * Every operation is built on its own by operation(), which the JMH harness
+ * under jmh/ calls through fixture() to run the same work under JMH.
+ */
+class Benchmarks {
+
+    private static final long warmupNanos = 1000000000L;
+    private static final long measureNanos = 2000000000L;
+    private static final int minMeasured = 3;
+
+    // most rule-against-row tests one operation of a row scan benchmark may do
+    static final long maxRowScanWork = 100000000L;
+
+    // sink every benchmark result is added to
+    static volatile long sink;
+
+    // one timed operation, returning something that depends on its work. It is
+    // also a Callable, so the JMH harness in its own package can run it, and
+    // is closed once its benchmark is done
+    interface Operation extends Callable<Long>, AutoCloseable {
+        long run() throws Exception;
+
+        @Override
+        default Long call() throws Exception {
+            return run();
+        }
+
+        @Override
+        default void close() {
+        }
+    }
+
+    // every built-in indicator, timed on its own over the standard windows
+    private static final String[] indicatorNames = { "smaCross", "emaCross", "priceAboveEma", "breakOut",
+            "volatility", "momentum", "rsi", "bollinger", "macd" };
+    private static final Indicator.Factory[] indicatorFactories = {
+            Indicators.smaCross(Modelling.secondNumDays, Modelling.numDays),
+            Indicators.emaCross(Modelling.secondNumDays, Modelling.numDays),
+            Indicators.priceAboveEma(Modelling.numDays), Indicators.breakOut(Modelling.numDays, 0.0),
+            Indicators.volatility(Modelling.numDays, 0.03), Indicators.momentum(Modelling.numDays),
+            Indicators.rsi(Modelling.secondNumDays, 70), Indicators.bollinger(20, 2.0),
+            Indicators.macd(12, 26, 9) };
+
+    // benchmarks run once per dataset size, and once per size and population
+    static final String[] seriesBenchmarks = seriesBenchmarks();
+    static final String[] populationBenchmarks = { "evaluate.serial", "evaluate.parallel",
+            "evaluate.columns." + ColumnEvaluator.kernel.name(), "evaluate.histogram", "tournamentSelection",
+            "generation" };
+
+    // the synthetic data of one dataset size, shared by its benchmarks
+    static final class Data {
+        final int size;
+        final PriceSeries series;
+        final long[] rows;
+
+        Data(int size) {
+            this.size = size;
+            this.series = syntheticSeries(size, 42L);
+            FeatureMatrix features = Modelling.createInputData(series);
+            this.rows = features.packRows(0, features.rows);
+        }
+    }
+
+    private final String filter;
+
+    Benchmarks(String filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String filter = args.length > 0 ? args[0] : "all";
+        int[] sizes = parse(args.length > 1 ? args[1] : "1000,100000,1000000");
+        int[] populations = parse(args.length > 2 ? args[2] : "100,1000,10000");
+        Benchmarks benchmarks = new Benchmarks(filter);
+        System.out.println(String.format(Locale.ROOT, "%-28s %10s %10s %16s %14s", "Benchmark", "rows",
+                "population", "ns/op", "ops/s"));
+        for (int size : sizes) {
+            benchmarks.runAll(size, populations);
+        }
+    }
+
+    /**
+     * function that runs every benchmark for one dataset size
+     * 
+     * @param size,        number of days in the synthetic series
+     * @param populations, population sizes for the evaluation benchmarks
+     */
+    void runAll(int size, int[] populations) throws Exception {
+        Data data = new Data(size);
+        for (String name : seriesBenchmarks) {
+            bench(name, name.equals("covers") ? data.rows.length : size, name.equals("covers") ? 1 : 0, data, 0);
+        }
+        for (int populationSize : populations) {
+            for (String name : populationBenchmarks) {
+                bench(name, data.rows.length, populationSize, data, populationSize);
+            }
+        }
+    }
+
+    /**
+     * function that builds one benchmark on data of its own, for the JMH
+     * harness, which reaches it by reflection
+     * 
+     * @param name,       name of the benchmark
+     * @param size,       number of days in the synthetic series
+     * @param population, population size, for the evaluation benchmarks
+     * @return the operation, to be closed when its benchmark is done
+     */
+    static Operation fixture(String name, int size, int population) throws Exception {
+        Operation operation = operation(name, new Data(size), population);
+        if (operation == null) {
+            throw new IllegalArgumentException("no benchmark named " + name);
+        }
+        return operation;
+    }
+
+    /**
+     * function that builds the operation of a benchmark: the evaluators and the
+     * GA are built here, outside the timed work, and only for the benchmark
+     * asked for, as the parallel evaluator starts threads and the others copy
+     * the rows
+     * 
+     * @param name,           name of the benchmark
+     * @param data,           the synthetic data
+     * @param populationSize, population size, for the evaluation benchmarks
+     * @return the operation, or null if there is no benchmark of that name
+     */
+    static Operation operation(String name, Data data, int populationSize) throws IOException {
+        final PriceSeries series = data.series;
+        final long[] rows = data.rows;
+        final Random random = new Random(7L);
+        final long[] population = randomPopulation(populationSize, random);
+        final double[] fitness = new double[populationSize];
+        if (name.equals("populatePriceData")) {
+            final File csv = File.createTempFile("prices", ".csv");
+            csv.deleteOnExit();
+            writeCsv(series, csv);
+            return new Operation() {
+                public long run() throws IOException {
+                    return PriceLoader.load(csv).size();
+                }
+
+                @Override
+                public void close() {
+                    csv.delete();
+                }
+            };
+        }
+        if (name.equals("createInputData")) {
+            return new Operation() {
+                public long run() {
+                    return Modelling.createInputData(series).labels.length;
+                }
+            };
+        }
+        if (name.equals("IndicatorEngine.push")) {
+            return new Operation() {
+                public long run() {
+                    IndicatorEngine engine = new IndicatorEngine(Modelling.secondNumDays, Modelling.numDays);
+                    for (int i = 0; i < series.size(); i++) {
+                        engine.push(series.price(i));
+                    }
+                    return engine.count();
+                }
+            };
+        }
+        if (name.equals("IndicatorEngine.update")) {
+            return new Operation() {
+                public long run() {
+                    IndicatorEngine engine = new IndicatorEngine(Modelling.secondNumDays, Modelling.numDays);
+                    long bits = 0;
+                    for (int i = 0; i < series.size(); i++) {
+                        bits += engine.update(series.price(i));
+                    }
+                    return bits;
+                }
+            };
+        }
+        for (int i = 0; i < indicatorNames.length; i++) {
+            if (name.equals("indicator." + indicatorNames[i])) {
+                final Indicator.Factory factory = indicatorFactories[i];
+                return new Operation() {
+                    public long run() {
+                        Indicator indicator = factory.create();
+                        long features = 0;
+                        for (int p = 0; p < series.size(); p++) {
+                            double price = series.price(p);
+                            if (p >= indicator.warmUp() && indicator.feature(price)) {
+                                features++;
+                            }
+                            indicator.push(price);
+                        }
+                        return features;
+                    }
+                };
+            }
+        }
+        if (name.equals("FeatureEngine.update")) {
+            return new Operation() {
+                public long run() {
+                    FeatureEngine engine = IndicatorRegistry.standard.engine();
+                    long[] words = new long[FeatureMatrix.words(engine.features())];
+                    long bits = 0;
+                    for (int i = 0; i < series.size(); i++) {
+                        if (engine.update(series.price(i), words)) {
+                            bits += words[0];
+                        }
+                    }
+                    return bits;
+                }
+            };
+        }
+        if (name.equals("covers")) {
+            return new Operation() {
+                public long run() {
+                    long rule = random.nextLong() & ((1L << GA.bits) - 1);
+                    long covered = 0;
+                    for (long row : rows) {
+                        if (Rules.covers(rule, row, Rules.PAIR_MASK)) {
+                            covered++;
+                        }
+                    }
+                    return covered;
+                }
+            };
+        }
+
+        if (name.equals("evaluate.serial") || name.equals("evaluate.parallel")
+                || name.startsWith("evaluate.columns") || name.equals("evaluate.histogram")) {
+            final FitnessEvaluator evaluator;
+            if (name.equals("evaluate.serial")) {
+                evaluator = new RowScanEvaluator(rows, GA.bits - 1, Rules.PAIR_MASK);
+            } else if (name.equals("evaluate.parallel")) {
+                evaluator = new ParallelEvaluator(rows, GA.bits - 1, Rules.PAIR_MASK,
+                        Runtime.getRuntime().availableProcessors());
+            } else if (name.startsWith("evaluate.columns")) {
+                evaluator = new ColumnEvaluator(rows, GA.bits - 1, Rules.PAIR_MASK, null);
+            } else {
+                evaluator = new HistogramEvaluator(rows, GA.bits - 1, IndicatorEngine.features, null);
+            }
+            return new Operation() {
+                public long run() {
+                    evaluator.evaluate(population, population.length, fitness);
+                    return Double.doubleToLongBits(fitness[0]);
+                }
+
+                @Override
+                public void close() {
+                    evaluator.close();
+                }
+            };
+        }
+        if (name.equals("tournamentSelection") || name.equals("generation")) {
+            GAConfig config = GAConfig.builder().populationSize(populationSize).seed(11L).build();
+            long[][] split = { rows, new long[0] };
+            final GA ga = new GA(config, split, new RowScanEvaluator(rows, GA.bits - 1, Rules.PAIR_MASK),
+                    new Rng(11L));
+            if (name.equals("tournamentSelection")) {
+                return new Operation() {
+                    public long run() {
+                        long winners = 0;
+                        for (int i = 0; i < ga.populationSize; i++) {
+                            winners += ga.tournamentSelection();
+                        }
+                        return winners;
+                    }
+                };
+            }
+            return new Operation() {
+                public long run() {
+                    ga.nextGeneration();
+                    return ga.population[0];
+                }
+            };
+        }
+        return null;
+    }
+
+    // function that lists the benchmarks run once per dataset size
+    private static String[] seriesBenchmarks() {
+        String[] names = new String[indicatorNames.length + 6];
+        names[0] = "populatePriceData";
+        names[1] = "createInputData";
+        names[2] = "IndicatorEngine.push";
+        names[3] = "IndicatorEngine.update";
+        for (int i = 0; i < indicatorNames.length; i++) {
+            names[4 + i] = "indicator." + indicatorNames[i];
+        }
+        names[indicatorNames.length + 4] = "FeatureEngine.update";
+        names[indicatorNames.length + 5] = "covers";
+        return names;
+    }
+
+    // true for the benchmarks that scan every row for every individual
+    private static boolean scansRows(String name) {
+        return name.equals("evaluate.serial") || name.equals("evaluate.parallel")
+                || name.equals("tournamentSelection") || name.equals("generation");
+    }
+
+    /**
+     * function that builds one benchmark, warms it up and times it, then prints
+     * its mean time per operation and closes it
+     * 
+     * @param name,           name of the benchmark
+     * @param rows,           dataset size, for the report
+     * @param population,     population size, for the report
+     * @param data,           the synthetic data
+     * @param populationSize, population size the benchmark is built with
+     */
+    void bench(String name, int rows, int population, Data data, int populationSize) throws Exception {
+        if (!matches(name)) {
+            return;
+        }
+        if (scansRows(name) && (long) data.rows.length * populationSize > maxRowScanWork) {
+            System.out.println(String.format(Locale.ROOT, "%-28s %10d %10d %16s", name, rows, population,
+                    "skipped"));
+            return;
+        }
+        try (Operation operation = operation(name, data, populationSize)) {
+            long start = System.nanoTime();
+            do {
+                sink += operation.run();
+            } while (System.nanoTime() - start < warmupNanos);
+
+            long count = 0;
+            start = System.nanoTime();
+            long elapsed;
+            do {
+                sink += operation.run();
+                count++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < measureNanos || count < minMeasured);
+
+            double nanosPerOp = (double) elapsed / count;
+            System.out.println(String.format(Locale.ROOT, "%-28s %10d %10d %16.1f %14.2f", name, rows,
+                    population, nanosPerOp, 1e9 / nanosPerOp));
+        }
+    }
+
+    private boolean matches(String name) {
+        return filter.equals("all") || name.contains(filter);
+    }
+
+    /**
+     * function that builds a random walk price series whose label says if the
+     * price 14 days later is higher, with the last 14 days unknown
+     * 
+     * @param size, number of days
+     * @param seed, seed of the walk
+     * @return the series
+     */
+    static PriceSeries syntheticSeries(int size, long seed) {
+        Random random = new Random(seed);
+        double[] prices = new double[size];
+        double price = 350.0;
+        for (int i = 0; i < size; i++) {
+            price = Math.max(1.0, price * (1.0 + random.nextGaussian() * 0.015));
+            prices[i] = Math.round(price * 100.0) / 100.0;
+        }
+        PriceSeries series = new PriceSeries(size);
+        for (int i = 0; i < size; i++) {
+            int increase = i + 14 < size ? (prices[i + 14] > prices[i] ? 1 : 0) : PriceLoader.unknown;
+            series.add(prices[i], increase);
+        }
+        return series;
+    }
+
+    // function that writes a series in the price,increase layout of PriceData.csv
+    static void writeCsv(PriceSeries series, File file) throws IOException {
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for (int i = 0; i < series.size(); i++) {
+                out.write(Double.toString(series.price(i)));
+                out.write(',');
+                out.write(series.increase(i) < 0 ? "NA" : Integer.toString(series.increase(i)));
+                out.write('\n');
+            }
+        }
+    }
+
+    private static long[] randomPopulation(int size, Random random) {
+        long[] population = new long[size];
+        for (int i = 0; i < size; i++) {
+            population[i] = random.nextLong() & ((1L << GA.bits) - 1);
+        }
+        return population;
+    }
+
+    private static int[] parse(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluator over the training rows stored by column. Bit r of column 2f + v is
+ * bit 2f + v of row r, so the rows a rule covers are worked out for 64 rows at
+ * a time with a few AND/OR operations per feature, and the confusion counts
+ * come from popcounts instead of a branch per row:
+ *
+ * covered = AND over f of (T[f] & ruleTrue) | (F[f] & ruleFalse) | wildcard
+ * matching = covered & (labels == rule label)
+ *
+ * TP is the number of matching rows and FP the rest of the covered rows; FN and
+ * TN follow from the number of rows with each label. The words are scanned by a
+ * ColumnKernel: the vector kernel (jdk.incubator.vector, 256/512 rows per
+ * step) when it was compiled and the module is present, otherwise the scalar
+ * one below, which gives the same counts.
+ *
+ * With more than one thread the population is split between the threads of a
+ * ForkJoinPool, each task with scratch of its own; every rule is still counted
+ * over all the rows, so the fitness is the same whatever the number of threads.
+ */
+class ColumnEvaluator implements FitnessEvaluator {
+
+    // scans the column words for one rule
+    interface ColumnKernel {
+
+        /**
+         * function that counts the covered rows, and the covered rows whose label
+         * is the rule's, of one rule
+         *
+         * @param columns,   two columns per feature, TRUE bit then FALSE bit
+         * @param labels,    label column
+         * @param valid,     bit r set if row r is counted
+         * @param select,    per column, -1 if the rule has that bit set, else 0
+         * @param wildcard,  per feature, -1 if the rule pair is 11, else 0
+         * @param labelMask, -1 if the rule predicts YES, 0 for NO
+         * @param counts,    covered rows and matching rows are written here
+         */
+        void count(long[][] columns, long[] labels, long[] valid, long[] select, long[] wildcard, long labelMask,
+                long[] counts);
+
+        // name printed by the benchmarks
+        String name();
+    }
+
+    // class name of the vector kernel, compiled from vector/ when the module is
+    // available
+    static final String vectorKernelClass = "VectorColumnKernel";
+
+    // the kernel used by every column evaluator
+    static final ColumnKernel kernel = loadKernel();
+
+    private final int features;
+    private final int labelBit;
+    private final long[][] columns;
+    private final long[] labels;
+    private final long[] valid;
+    private final long yesRows;
+    private final long noRows;
+    // splits the population when there is more than one thread, otherwise null
+    private final ForkJoinPool pool;
+
+    // scratch reused by evaluate() on a single thread, so an evaluator must only
+    // be used by one caller at a time
+    private final long[] select;
+    private final long[] wildcard;
+    private final long[] counts = new long[2];
+    private final int[] confusion = new int[4];
+
+    /**
+     * @param rows,      packed training instances
+     * @param labelBit,  index of the YES/NO bit
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param remaining, bit r set if row r is counted, or null for every row
+     */
+    ColumnEvaluator(long[] rows, int labelBit, long pairMask, long[] remaining) {
+        this(rows, labelBit, pairMask, remaining, 1);
+    }
+
+    /**
+     * @param rows,      packed training instances
+     * @param labelBit,  index of the YES/NO bit
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param remaining, bit r set if row r is counted, or null for every row
+     * @param threads,   number of threads the population is split between
+     */
+    ColumnEvaluator(long[] rows, int labelBit, long pairMask, long[] remaining, int threads) {
+        int features = Long.bitCount(pairMask);
+        if (pairMask != Rules.pairMask(features)) {
+            throw new IllegalArgumentException("feature pairs must start at bit 0");
+        }
+        this.features = features;
+        this.labelBit = labelBit;
+        int words = FeatureMatrix.words(rows.length);
+        this.columns = new long[2 * features][words];
+        this.labels = new long[words];
+        this.valid = new long[words];
+        for (int r = 0; r < rows.length; r++) {
+            long bit = 1L << r;
+            int word = r >>> 6;
+            long row = rows[r];
+            for (int c = 0; c < 2 * features; c++) {
+                if ((row >>> c & 1L) != 0) {
+                    columns[c][word] |= bit;
+                }
+            }
+            if ((row >>> labelBit & 1L) != 0) {
+                labels[word] |= bit;
+            }
+            if (remaining == null || (remaining[word] & bit) != 0) {
+                valid[word] |= bit;
+            }
+        }
+        long yes = 0;
+        long all = 0;
+        for (int w = 0; w < words; w++) {
+            yes += Long.bitCount(labels[w] & valid[w]);
+            all += Long.bitCount(valid[w]);
+        }
+        this.yesRows = yes;
+        this.noRows = all - yes;
+        this.select = new long[2 * features];
+        this.wildcard = new long[features];
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    @Override
+    public void evaluate(long[] population, int size, double[] fitness) {
+        if (pool != null) {
+            split(population, size, fitness, null);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            count(population[i], select, wildcard, counts, confusion, 0);
+            fitness[i] = RowScanEvaluator.fitness(confusion[0], confusion[1], confusion[2], confusion[3]);
+        }
+    }
+
+    @Override
+    public void confusion(long[] population, int size, int[] counts) {
+        if (pool != null) {
+            split(population, size, null, counts);
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            count(population[i], select, wildcard, this.counts, counts, 4 * i);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * function that splits the population between the threads and writes either
+     * the fitness or the confusion counts of every individual
+     *
+     * @param population, packed rules
+     * @param size,       number of individuals
+     * @param fitness,    array the fitness is written to, or null
+     * @param confusion,  array the TP, FP, FN and TN of individual i are written
+     *                    to at 4 * i, or null
+     */
+    private void split(long[] population, int size, double[] fitness, int[] confusion) {
+        int perTask = Math.max(1, size / (pool.getParallelism() * 4));
+        pool.invoke(new PopulationTask(population, fitness, confusion, 0, size, perTask));
+    }
+
+    /**
+     * function that writes the TP, FP, FN and TN of a rule at offset
+     *
+     * @param rule,            packed rule
+     * @param select,          scratch, one word per column
+     * @param wildcard,        scratch, one word per feature
+     * @param kernelCounts,    scratch for the two counts of the kernel
+     * @param confusionCounts, array the counts are written to
+     * @param offset,          index of TP in confusionCounts
+     */
+    private void count(long rule, long[] select, long[] wildcard, long[] kernelCounts, int[] confusionCounts,
+            int offset) {
+        for (int f = 0; f < features; f++) {
+            long t = -(rule >>> (2 * f) & 1L);
+            long n = -(rule >>> (2 * f + 1) & 1L);
+            select[2 * f] = t;
+            select[2 * f + 1] = n;
+            wildcard[f] = t & n;
+        }
+        boolean yes = (rule >>> labelBit & 1L) != 0;
+        kernel.count(columns, labels, valid, select, wildcard, yes ? -1L : 0L, kernelCounts);
+        int TP = (int) kernelCounts[1];
+        int FP = (int) (kernelCounts[0] - kernelCounts[1]);
+        long sameLabel = yes ? yesRows : noRows;
+        long otherLabel = yes ? noRows : yesRows;
+        confusionCounts[offset] = TP;
+        confusionCounts[offset + 1] = FP;
+        confusionCounts[offset + 2] = (int) (sameLabel - TP);
+        confusionCounts[offset + 3] = (int) (otherLabel - FP);
+    }
+
+    // task that scores (or counts) a range of individuals, with scratch of its own
+    private class PopulationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final long[] population;
+        private final double[] fitness;
+        private final int[] confusion;
+        private final int from;
+        private final int to;
+        private final int perTask;
+
+        PopulationTask(long[] population, double[] fitness, int[] confusion, int from, int to, int perTask) {
+            this.population = population;
+            this.fitness = fitness;
+            this.confusion = confusion;
+            this.from = from;
+            this.to = to;
+            this.perTask = perTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > perTask) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PopulationTask(population, fitness, confusion, from, mid, perTask),
+                        new PopulationTask(population, fitness, confusion, mid, to, perTask));
+                return;
+            }
+            long[] taskSelect = new long[2 * features];
+            long[] taskWildcard = new long[features];
+            long[] kernelCounts = new long[2];
+            if (confusion != null) {
+                for (int i = from; i < to; i++) {
+                    count(population[i], taskSelect, taskWildcard, kernelCounts, confusion, 4 * i);
+                }
+                return;
+            }
+            int[] counts = new int[4];
+            for (int i = from; i < to; i++) {
+                count(population[i], taskSelect, taskWildcard, kernelCounts, counts, 0);
+                fitness[i] = RowScanEvaluator.fitness(counts[0], counts[1], counts[2], counts[3]);
+            }
+        }
+    }
+
+    // function that picks the vector kernel if it can be loaded, unless
+    // -Dga.vector=false, and the scalar kernel otherwise
+    private static ColumnKernel loadKernel() {
+        if (!Boolean.parseBoolean(System.getProperty("ga.vector", "true"))) {
+            return new ScalarKernel();
+        }
+        try {
+            ColumnKernel vector = (ColumnKernel) Class.forName(vectorKernelClass).getDeclaredConstructor()
+                    .newInstance();
+            // links the vector classes now, so a missing module fails here
+            vector.name();
+            return vector;
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return new ScalarKernel();
+        }
+    }
+
+    // kernel that works on one word (64 rows) at a time
+    static final class ScalarKernel implements ColumnKernel {
+
+        @Override
+        public void count(long[][] columns, long[] labels, long[] valid, long[] select, long[] wildcard,
+                long labelMask, long[] counts) {
+            long covered = 0;
+            long matching = 0;
+            int features = wildcard.length;
+            for (int w = 0; w < valid.length; w++) {
+                long cover = valid[w];
+                for (int f = 0; f < features && cover != 0; f++) {
+                    cover &= (columns[2 * f][w] & select[2 * f]) | (columns[2 * f + 1][w] & select[2 * f + 1])
+                            | wildcard[f];
+                }
+                covered += Long.bitCount(cover);
+                matching += Long.bitCount(cover & ~(labels[w] ^ labelMask));
+            }
+            counts[0] = covered;
+            counts[1] = matching;
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,459 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exact search for the fittest rule, to check GA runs against a ground truth.
+ * Rules that cover anything only give each feature one of three values (TRUE,
+ * FALSE or wildcard), so they form a lattice from the all-wildcard rule down,
+ * and the rules with a 00 pair, which cover nothing, all have fitness 0. The
+ * lattice is walked depth first, one feature at a time in increasing order so
+ * every rule is visited once, and both labels are scored at every node.
+ *
+ * The rows a child covers are the rows its parent covers AND one feature
+ * column, so every node costs one AND and popcount per 64 rows from the counts
+ * its parent already has. A rule never covers more rows than its parent, so
+ * sensitivity is bounded by the covered rows with the rule's label (and
+ * specificity by 1); a subtree whose bound for both labels is below the best
+ * fitness found so far is skipped. The first levels are split into ForkJoin
+ * tasks that share the best fitness. Ties go to the lowest packed rule, so the
+ * result does not depend on the number of threads.
+ *
+ * The lattice has 3^features nodes, so above maxExactFeatures features a beam
+ * search is used instead: every level specialises the best beamWidth nodes of
+ * the level before by one more feature. It gives a lower bound on the optimum
+ * and is reported as not exact.
+ */
+class ExactSearch {
+
+    // most features searched exactly
+    static final int maxExactFeatures = 16;
+
+    // levels of the lattice split into tasks of their own
+    private static final int splitDepth = 2;
+
+    private final int features;
+    private final int labelBit;
+    private final int threads;
+    private final int beamWidth;
+    private final int words;
+    private final long[][] columns;
+    private final long[] labels;
+    private final int yesRows;
+    private final int noRows;
+
+    // rule with every feature pair a wildcard and label NO
+    private final long allWildcards;
+
+    // best fitness found so far, shared by the tasks, and the rule that has it
+    private volatile double incumbent;
+    private double bestFitness;
+    private long bestRule;
+
+    // rules scored (two per lattice node) and rules above the threshold when
+    // counting
+    private final AtomicLong scored = new AtomicLong();
+    private final AtomicLong above = new AtomicLong();
+
+    // results of the last search()
+    double fitness;
+    long rule;
+    boolean exact;
+    long rulesScored;
+    long nanos;
+
+    /**
+     * @param rows,      packed training instances
+     * @param labelBit,  index of the YES/NO bit
+     * @param features,  number of features; the pairs are the lowest 2 *
+     *                   features bits
+     * @param threads,   number of worker threads for the exact search
+     * @param beamWidth, nodes kept per level when the beam search is used
+     */
+    ExactSearch(long[] rows, int labelBit, int features, int threads, int beamWidth) {
+        this.features = features;
+        this.labelBit = labelBit;
+        this.threads = threads;
+        this.beamWidth = beamWidth;
+        this.words = FeatureMatrix.words(rows.length);
+        this.columns = new long[2 * features][words];
+        this.labels = new long[words];
+        int yes = 0;
+        for (int r = 0; r < rows.length; r++) {
+            long bit = 1L << r;
+            long row = rows[r];
+            for (int c = 0; c < 2 * features; c++) {
+                if ((row >>> c & 1L) != 0) {
+                    columns[c][r >>> 6] |= bit;
+                }
+            }
+            if ((row >>> labelBit & 1L) != 0) {
+                labels[r >>> 6] |= bit;
+                yes++;
+            }
+        }
+        this.yesRows = yes;
+        this.noRows = rows.length - yes;
+        long pairMask = Rules.pairMask(features);
+        this.allWildcards = pairMask | pairMask << 1;
+    }
+
+    /**
+     * function that finds the fittest rule, exactly when there are few enough
+     * features and with the beam search otherwise
+     *
+     * @param lowerBound, fitness some rule is known to reach (such as the GA's
+     *                    best), used to prune from the start; 0 if none
+     */
+    void search(double lowerBound) {
+        long start = System.nanoTime();
+        incumbent = lowerBound;
+        bestFitness = -1.0;
+        bestRule = allWildcards;
+        scored.set(0);
+        exact = features <= maxExactFeatures;
+        if (exact) {
+            walk(lowerBound, false);
+        } else {
+            beam();
+        }
+        fitness = bestFitness;
+        rule = bestRule;
+        rulesScored = scored.get();
+        nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * function that counts the rules fitter than a threshold, walking the whole
+     * lattice but skipping the subtrees that cannot beat it
+     *
+     * @param threshold, fitness to beat
+     * @return number of rules strictly fitter
+     */
+    long countAbove(double threshold) {
+        above.set(0);
+        walk(threshold, true);
+        return above.get();
+    }
+
+    // function that walks the lattice from the all-wildcard rule on a pool
+    private void walk(double threshold, boolean counting) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.invoke(new SubtreeTask(0, 0, allWildcards, allRows(), yesRows, noRows, threshold, counting));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // function that returns the covered rows of the all-wildcard rule
+    private long[] allRows() {
+        long[] all = new long[words];
+        Arrays.fill(all, -1L);
+        int rows = yesRows + noRows;
+        if ((rows & 63) != 0) {
+            all[words - 1] = (1L << rows) - 1;
+        }
+        return all;
+    }
+
+    // task that scores a node and searches the nodes under it, forking a task
+    // per child on the first levels
+    private class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int depth;
+        private final int next;
+        private final long node;
+        private final long[] cover;
+        private final int coveredYes;
+        private final int coveredNo;
+        private final double threshold;
+        private final boolean counting;
+
+        // covered rows of every level below this task's node
+        private long[][] covers;
+        private long count = 0;
+        private long countAbove = 0;
+
+        SubtreeTask(int depth, int next, long node, long[] cover, int coveredYes, int coveredNo, double threshold,
+                boolean counting) {
+            this.depth = depth;
+            this.next = next;
+            this.node = node;
+            this.cover = cover;
+            this.coveredYes = coveredYes;
+            this.coveredNo = coveredNo;
+            this.threshold = threshold;
+            this.counting = counting;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= splitDepth) {
+                covers = new long[features - next + 1][];
+                covers[0] = cover;
+                for (int d = 1; d < covers.length; d++) {
+                    covers[d] = new long[words];
+                }
+                visit(0, next, node, coveredYes, coveredNo);
+                scored.addAndGet(count);
+                above.addAndGet(countAbove);
+                return;
+            }
+            score(node, coveredYes, coveredNo);
+            scored.addAndGet(count);
+            above.addAndGet(countAbove);
+            List<SubtreeTask> children = new ArrayList<SubtreeTask>();
+            for (int j = next; j < features; j++) {
+                for (int value = 0; value < 2; value++) {
+                    long[] child = new long[words];
+                    long[] column = columns[2 * j + value];
+                    int yes = 0;
+                    int all = 0;
+                    for (int w = 0; w < words; w++) {
+                        long c = cover[w] & column[w];
+                        child[w] = c;
+                        all += Long.bitCount(c);
+                        yes += Long.bitCount(c & labels[w]);
+                    }
+                    if (!prune(yes, all - yes)) {
+                        children.add(new SubtreeTask(depth + 1, j + 1, specialise(node, j, value), child, yes,
+                                all - yes, threshold, counting));
+                    }
+                }
+            }
+            invokeAll(children);
+        }
+
+        /**
+         * function that scores a node and then its children, depth first, with
+         * the covered rows of level d in covers[d]
+         *
+         * @param d,          level below this task's node
+         * @param next,       first feature the children may specialise
+         * @param node,       rule of the node, label NO
+         * @param coveredYes, covered rows with label YES
+         * @param coveredNo,  covered rows with label NO
+         */
+        private void visit(int d, int next, long node, int coveredYes, int coveredNo) {
+            score(node, coveredYes, coveredNo);
+            long[] parent = covers[d];
+            for (int j = next; j < features; j++) {
+                for (int value = 0; value < 2; value++) {
+                    long[] child = covers[d + 1];
+                    long[] column = columns[2 * j + value];
+                    int yes = 0;
+                    int all = 0;
+                    for (int w = 0; w < words; w++) {
+                        long c = parent[w] & column[w];
+                        child[w] = c;
+                        all += Long.bitCount(c);
+                        yes += Long.bitCount(c & labels[w]);
+                    }
+                    if (!prune(yes, all - yes)) {
+                        visit(d + 1, j + 1, specialise(node, j, value), yes, all - yes);
+                    }
+                }
+            }
+        }
+
+        // function that scores both labels of a node
+        private void score(long node, int coveredYes, int coveredNo) {
+            count += 2;
+            if (counting) {
+                countAbove += (fitnessYes(coveredYes, coveredNo) > threshold ? 1 : 0)
+                        + (fitnessNo(coveredYes, coveredNo) > threshold ? 1 : 0);
+            } else {
+                offer(node, coveredYes, coveredNo);
+            }
+        }
+
+        // function that checks if no rule under a node can beat the best so far,
+        // or the threshold when counting
+        private boolean prune(int coveredYes, int coveredNo) {
+            if (coveredYes + coveredNo == 0) {
+                return true;
+            }
+            double bound = bound(coveredYes, coveredNo);
+            return counting ? bound <= threshold : bound < incumbent;
+        }
+    }
+
+    /**
+     * function that bounds the fitness of every rule under a node: the
+     * sensitivity of a rule that covers all the node's rows with its label and
+     * none of the others
+     *
+     * @param coveredYes, covered rows with label YES
+     * @param coveredNo,  covered rows with label NO
+     * @return highest fitness reachable with either label
+     */
+    private double bound(int coveredYes, int coveredNo) {
+        double yes = yesRows > 0 ? coveredYes / (double) yesRows : 0.0;
+        double no = noRows > 0 ? coveredNo / (double) noRows : 0.0;
+        return Math.max(yes, no);
+    }
+
+    // fitness of the YES and the NO rule of a node from its covered rows
+    private double fitnessYes(int coveredYes, int coveredNo) {
+        return RowScanEvaluator.fitness(coveredYes, coveredNo, yesRows - coveredYes, noRows - coveredNo);
+    }
+
+    private double fitnessNo(int coveredYes, int coveredNo) {
+        return RowScanEvaluator.fitness(coveredNo, coveredYes, noRows - coveredNo, yesRows - coveredYes);
+    }
+
+    // function that offers both labels of a node as the fittest rule so far
+    private void offer(long node, int coveredYes, int coveredNo) {
+        offer(node | 1L << labelBit, fitnessYes(coveredYes, coveredNo));
+        offer(node, fitnessNo(coveredYes, coveredNo));
+    }
+
+    // function that keeps a rule if it is the fittest so far, the lowest packed
+    // rule among equals
+    private void offer(long candidate, double f) {
+        if (f < incumbent) {
+            return;
+        }
+        synchronized (this) {
+            if (f > bestFitness || (f == bestFitness && candidate < bestRule)) {
+                bestFitness = f;
+                bestRule = candidate;
+                if (f > incumbent) {
+                    incumbent = f;
+                }
+            }
+        }
+    }
+
+    /**
+     * function that sets one wildcard feature of a rule
+     *
+     * @param node,    packed rule
+     * @param feature, feature set
+     * @param value,   0 for TRUE, 1 for FALSE
+     * @return the rule with the pair of the feature set to 01 or 10
+     */
+    private static long specialise(long node, int feature, int value) {
+        return node & ~(1L << (2 * feature + 1 - value));
+    }
+
+    // function that runs the beam search, level by level from the all-wildcard
+    // rule, keeping the covered rows of every node in the beam
+    private void beam() {
+        long[] beamRules = { allWildcards };
+        long[][] beamCovers = { allRows() };
+        offer(allWildcards, yesRows, noRows);
+        long count = 2;
+        for (int level = 0; level < features && beamRules.length > 0; level++) {
+            int most = beamRules.length * 2 * features;
+            long[] childRules = new long[most];
+            int[] childParents = new int[most];
+            int[] childColumns = new int[most];
+            double[] childScores = new double[most];
+            int children = 0;
+            for (int b = 0; b < beamRules.length; b++) {
+                long[] parent = beamCovers[b];
+                for (int j = 0; j < features; j++) {
+                    if ((beamRules[b] >>> (2 * j) & 3L) != 3L) {
+                        continue;
+                    }
+                    for (int value = 0; value < 2; value++) {
+                        long[] column = columns[2 * j + value];
+                        int yes = 0;
+                        int all = 0;
+                        for (int w = 0; w < words; w++) {
+                            long c = parent[w] & column[w];
+                            all += Long.bitCount(c);
+                            yes += Long.bitCount(c & labels[w]);
+                        }
+                        if (all == 0 || bound(yes, all - yes) < incumbent) {
+                            continue;
+                        }
+                        long child = specialise(beamRules[b], j, value);
+                        offer(child, yes, all - yes);
+                        count += 2;
+                        childRules[children] = child;
+                        childParents[children] = b;
+                        childColumns[children] = 2 * j + value;
+                        childScores[children] = Math.max(fitnessYes(yes, all - yes), fitnessNo(yes, all - yes));
+                        children++;
+                    }
+                }
+            }
+            Integer[] order = new Integer[children];
+            for (int i = 0; i < children; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int c = Double.compare(childScores[b], childScores[a]);
+                    return c != 0 ? c : Long.compare(childRules[a], childRules[b]);
+                }
+            });
+            // the same rule is reached from different parents, it is kept once
+            HashSet<Long> kept = new HashSet<Long>();
+            long[] nextRules = new long[Math.min(beamWidth, children)];
+            long[][] nextCovers = new long[nextRules.length][];
+            int size = 0;
+            for (int k = 0; k < children && size < nextRules.length; k++) {
+                int i = order[k];
+                if (!kept.add(childRules[i])) {
+                    continue;
+                }
+                long[] parent = beamCovers[childParents[i]];
+                long[] column = columns[childColumns[i]];
+                long[] cover = new long[words];
+                for (int w = 0; w < words; w++) {
+                    cover[w] = parent[w] & column[w];
+                }
+                nextRules[size] = childRules[i];
+                nextCovers[size] = cover;
+                size++;
+            }
+            beamRules = Arrays.copyOf(nextRules, size);
+            beamCovers = Arrays.copyOf(nextCovers, size);
+        }
+        scored.addAndGet(count);
+    }
+
+    // Main that runs the GA, then the exact search over the same training data,
+    // and prints how far the GA's best rule is from the optimum. Optional
+    // arguments: number of threads, beam width for wide genomes
+    public static void main(String[] args) {
+        Modelling model = new Modelling(new File("PriceData.csv"), new File("PriceData.features"));
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int beamWidth = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        GAConfig config = Modelling.gaConfig(threads).toBuilder().checkpoint(null, 1).build();
+        long[][] split = GA.prepareData(model.getRows(), config.training);
+        GA ga = new GA(config, split, null, config.seeded ? new Rng(config.seed) : Rng.unseeded());
+        ga.run();
+        ga.close();
+        int best = ga.best();
+        double gaFitness = ga.fitness[best];
+
+        ExactSearch search = new ExactSearch(split[0], config.registry.labelBit(), config.registry.features(),
+                threads, beamWidth);
+        search.search(0.0);
+        System.out.println((search.exact ? "Optimum" : "Beam search best") + " (" + search.rulesScored
+                + " rules scored in " + search.nanos / 1000000 + " ms): " + config.registry.describe(search.rule));
+        System.out.println("Fitness: " + search.fitness);
+        System.out.println("GA best: " + config.registry.describe(ga.population[best]));
+        System.out.println("Fitness: " + gaFitness);
+        double gap = search.fitness - gaFitness;
+        String line = String.format(Locale.ROOT, "Gap: %.6f (%.2f%% of the %s)", gap,
+                search.fitness > 0 ? 100.0 * gap / search.fitness : 0.0, search.exact ? "optimum" : "beam best");
+        if (search.exact) {
+            line += ", rules fitter than the GA's best: " + search.countAbove(gaFitness);
+        }
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Streaming engine over the indicators of a registry. Every price is given to
+ * every indicator once, and the features of the price are written into a
+ * bitset of as many words as the registry needs, so an engine with a hundred
+ * indicators costs a hundred O(1) updates per price and no allocation.
+ */
+class FeatureEngine {
+
+    private final Indicator[] indicators;
+    private final int warmUp;
+    private long count = 0;
+
+    /**
+     * @param indicators, indicators with fresh state, feature f first
+     */
+    FeatureEngine(Indicator[] indicators) {
+        this.indicators = indicators;
+        int most = 0;
+        for (Indicator indicator : indicators) {
+            most = Math.max(most, indicator.warmUp());
+        }
+        this.warmUp = most;
+    }
+
+    // number of features produced for every price
+    int features() {
+        return indicators.length;
+    }
+
+    // true once every indicator has a value
+    boolean ready() {
+        return count >= warmUp;
+    }
+
+    // number of prices pushed so far
+    long count() {
+        return count;
+    }
+
+    /**
+     * function that works out the features of a new price from the previous
+     * prices and then adds the price to every indicator
+     *
+     * @param price,    the new price
+     * @param features, bitset the features are written to, bit f set if feature
+     *                  f is true; at least FeatureMatrix.words(features()) words
+     * @return true if the features were written, false while the indicators are
+     *         still filling
+     */
+    boolean update(double price, long[] features) {
+        boolean ready = ready();
+        if (ready) {
+            for (int w = 0; w < FeatureMatrix.words(indicators.length); w++) {
+                features[w] = 0L;
+            }
+            for (int f = 0; f < indicators.length; f++) {
+                if (indicators[f].feature(price)) {
+                    features[f >>> 6] |= 1L << f;
+                }
+            }
+        }
+        for (int f = 0; f < indicators.length; f++) {
+            indicators[f].push(price);
+        }
+        count++;
+        return ready;
+    }
+}
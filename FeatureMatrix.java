@@ -0,0 +1,127 @@
+/**
+ * The binary features and labels produced by the modelling class, stored by
+ * column: bit r of column f is feature f of row r, and bit r of the label
+ * column is weather the price increased after row r. Once built the matrix is
+ * only read, so one copy can be shared by any number of GA runs.
+ */
+class FeatureMatrix {
+
+    final int rows;
+    final int features;
+    final long[][] columns;
+    final long[] labels;
+
+    /**
+     * Constructor for an empty matrix that is filled with set()
+     * 
+     * @param rows,     number of rows
+     * @param features, number of features in a row
+     */
+    FeatureMatrix(int rows, int features) {
+        this(rows, features, new long[features][words(rows)], new long[words(rows)]);
+    }
+
+    /**
+     * Constructor for a matrix around existing columns
+     * 
+     * @param rows,     number of rows
+     * @param features, number of features in a row
+     * @param columns,  one bitset per feature
+     * @param labels,   bitset of the labels
+     */
+    FeatureMatrix(int rows, int features, long[][] columns, long[] labels) {
+        this.rows = rows;
+        this.features = features;
+        this.columns = columns;
+        this.labels = labels;
+    }
+
+    // function that returns the number of words needed for a column of rows bits
+    static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    /**
+     * function that stores the features and label of a row
+     * 
+     * @param row,         index of the row
+     * @param featureBits, bit f set if feature f is true
+     * @param label,       0/1 for decrease/increase
+     */
+    void set(int row, long featureBits, int label) {
+        long bit = 1L << row;
+        int word = row >>> 6;
+        for (int f = 0; f < features; f++) {
+            if ((featureBits >>> f & 1L) != 0) {
+                columns[f][word] |= bit;
+            }
+        }
+        if (label == 1) {
+            labels[word] |= bit;
+        }
+    }
+
+    /**
+     * function that stores the features and label of a row from a multi-word
+     * bitset of features
+     * 
+     * @param row,          index of the row
+     * @param featureWords, bit f of the words set if feature f is true
+     * @param label,        0/1 for decrease/increase
+     */
+    void set(int row, long[] featureWords, int label) {
+        long bit = 1L << row;
+        int word = row >>> 6;
+        for (int f = 0; f < features; f++) {
+            if ((featureWords[f >>> 6] >>> f & 1L) != 0) {
+                columns[f][word] |= bit;
+            }
+        }
+        if (label == 1) {
+            labels[word] |= bit;
+        }
+    }
+
+    // function that returns feature f of a row as 0 or 1
+    int feature(int row, int f) {
+        return (int) (columns[f][row >>> 6] >>> row) & 1;
+    }
+
+    // function that returns the label of a row as 0 or 1
+    int label(int row) {
+        return (int) (labels[row >>> 6] >>> row) & 1;
+    }
+
+    /**
+     * function that packs a row into the one-hot representation used by the GA
+     * 
+     * @param row, index of the row
+     * @return packed instance
+     */
+    long packRow(int row) {
+        long packed = 0L;
+        for (int f = 0; f < features; f++) {
+            packed |= 1L << (2 * f + 1 - feature(row, f));
+        }
+        return packed | (long) label(row) << (2 * features);
+    }
+
+    /**
+     * function that packs a range of rows for the GA, which needs every row to
+     * fit in one word, so at most 31 features
+     * 
+     * @param from, first row (inclusive)
+     * @param to,   last row (exclusive)
+     * @return packed instances
+     */
+    long[] packRows(int from, int to) {
+        if (2 * features + 1 > 64) {
+            throw new IllegalStateException(features + " features do not fit in one word");
+        }
+        long[] packed = new long[to - from];
+        for (int r = from; r < to; r++) {
+            packed[r - from] = packRow(r);
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,148 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary columnar file for a feature matrix, so the indicators of a price file
+ * only have to be worked out once. The file starts with a header recording the
+ * indicator windows and a checksum of the price file the features came from,
+ * followed by every feature column and the label column as 64-bit words:
+ * 
+ * int magic, int version, int shortDays, int longDays, long checksum,
+ * int rows, int features, long[] column 0 ... long[] labels
+ * 
+ * read() maps the file and only returns the matrix if the header matches, so a
+ * changed price file or different windows make the caller rebuild. The columns
+ * are mapped a chunk at a time, as one mapping cannot be larger than 2 GB.
+ */
+final class FeatureStore {
+
+    private static final int magic = 0x47414654;
+    private static final int version = 1;
+    private static final int headerBytes = 32;
+
+    private FeatureStore() {
+    }
+
+    /**
+     * function that calculates the CRC32 checksum of a file by mapping it
+     * 
+     * @param file, the file
+     * @return checksum
+     * @throws IOException if the file cannot be read
+     */
+    static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += PriceLoader.chunkSize) {
+                long length = Math.min(PriceLoader.chunkSize, size - position);
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * function that writes a feature matrix to a file, replacing it in one step
+     * so a half written file is never read
+     * 
+     * @param file,      file to write
+     * @param matrix,    the features and labels
+     * @param shortDays, short indicator window the features were built with
+     * @param longDays,  long indicator window the features were built with
+     * @param checksum,  checksum of the price file
+     * @throws IOException if the file cannot be written
+     */
+    static void write(File file, FeatureMatrix matrix, int shortDays, int longDays, long checksum)
+            throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeInt(shortDays);
+            out.writeInt(longDays);
+            out.writeLong(checksum);
+            out.writeInt(matrix.rows);
+            out.writeInt(matrix.features);
+            for (int f = 0; f < matrix.features; f++) {
+                for (long word : matrix.columns[f]) {
+                    out.writeLong(word);
+                }
+            }
+            for (long word : matrix.labels) {
+                out.writeLong(word);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * function that maps a feature file and returns its matrix if it was built
+     * from the same price file with the same windows
+     * 
+     * @param file,      file to read
+     * @param shortDays, short indicator window wanted
+     * @param longDays,  long indicator window wanted
+     * @param checksum,  checksum of the current price file
+     * @return the matrix, or null if the file is missing or out of date
+     * @throws IOException if the file cannot be read
+     */
+    static FeatureMatrix read(File file, int shortDays, int longDays, long checksum) throws IOException {
+        if (!file.isFile() || file.length() < headerBytes) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerBytes);
+            if (buffer.getInt(0) != magic || buffer.getInt(4) != version || buffer.getInt(8) != shortDays
+                    || buffer.getInt(12) != longDays || buffer.getLong(16) != checksum) {
+                return null;
+            }
+            int rows = buffer.getInt(24);
+            int features = buffer.getInt(28);
+            int words = FeatureMatrix.words(rows);
+            if (rows < 0 || features < 0 || channel.size() != headerBytes + 8L * words * (features + 1)) {
+                return null;
+            }
+            long position = headerBytes;
+            long[][] columns = new long[features][words];
+            for (int f = 0; f < features; f++) {
+                readWords(channel, position, columns[f]);
+                position += 8L * words;
+            }
+            long[] labels = new long[words];
+            readWords(channel, position, labels);
+            return new FeatureMatrix(rows, features, columns, labels);
+        }
+    }
+
+    /**
+     * function that fills an array with the 64-bit words stored from a position
+     * of the file, mapping at most PriceLoader.chunkSize bytes at a time
+     * 
+     * @param channel,  the open file
+     * @param position, offset of the first word
+     * @param words,    array filled with the words
+     * @throws IOException if the file cannot be mapped
+     */
+    private static void readWords(FileChannel channel, long position, long[] words) throws IOException {
+        int perChunk = PriceLoader.chunkSize / 8;
+        for (int done = 0; done < words.length; done += perChunk) {
+            int count = Math.min(perChunk, words.length - done);
+            LongBuffer longs = channel.map(FileChannel.MapMode.READ_ONLY, position + 8L * done, 8L * count)
+                    .asLongBuffer();
+            longs.get(words, done, count);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Evaluator that remembers the fitness of every genotype it has scored and only
+ * passes genotypes it has not seen before on to the evaluator it wraps. Small
+ * genomes (the 13-bit rule space has 8192 points) use a table indexed by the
+ * packed rule; wider genomes use a size-capped LRU map.
+ */
+class FitnessCache implements FitnessEvaluator {
+
+    // widest genome that is cached in a table rather than a map
+    private static final int maxTableBits = 20;
+
+    private final FitnessEvaluator delegate;
+    private final double[] table;
+    private final LinkedHashMap<Long, Double> lru;
+
+    // genotypes of the current batch that have to be passed on to the delegate,
+    // with their slot in missRules. A table-backed cache keeps the number of the
+    // batch each genotype was last queued in, so queueing allocates nothing
+    private final HashMap<Long, Integer> pending;
+    private final int[] queuedIn;
+    private final int[] queuedSlot;
+    private int batch = 0;
+    private long[] missRules = new long[0];
+    private double[] missFitness = new double[0];
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param delegate, evaluator used for genotypes that are not cached
+     * @param bits,     number of bits in a genotype
+     * @param capacity, most genotypes kept when the genome is too wide for a table
+     */
+    FitnessCache(FitnessEvaluator delegate, int bits, final int capacity) {
+        this.delegate = delegate;
+        if (bits <= maxTableBits) {
+            table = new double[1 << bits];
+            Arrays.fill(table, Double.NaN);
+            lru = null;
+            pending = null;
+            queuedIn = new int[1 << bits];
+            queuedSlot = new int[1 << bits];
+        } else {
+            table = null;
+            pending = new HashMap<Long, Integer>();
+            queuedIn = null;
+            queuedSlot = null;
+            lru = new LinkedHashMap<Long, Double>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+    }
+
+    @Override
+    public synchronized void evaluate(long[] population, int size, double[] fitness) {
+        startBatch();
+        int missCount = 0;
+        for (int i = 0; i < size; i++) {
+            long rule = population[i];
+            double cached = lookup(rule);
+            if (!Double.isNaN(cached)) {
+                fitness[i] = cached;
+                hits++;
+            } else if (queued(rule) >= 0) {
+                hits++;
+            } else {
+                if (missCount == missRules.length) {
+                    missRules = Arrays.copyOf(missRules, Math.max(16, missCount * 2));
+                    missFitness = new double[missRules.length];
+                }
+                queue(rule, missCount);
+                missRules[missCount] = rule;
+                missCount++;
+                misses++;
+            }
+        }
+        if (missCount == 0) {
+            return;
+        }
+        delegate.evaluate(missRules, missCount, missFitness);
+        for (int i = 0; i < missCount; i++) {
+            store(missRules[i], missFitness[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            int slot = queued(population[i]);
+            if (slot >= 0) {
+                fitness[i] = missFitness[slot];
+            }
+        }
+    }
+
+    // only the fitness is cached, so the counts always come from the delegate
+    @Override
+    public synchronized void confusion(long[] population, int size, int[] counts) {
+        delegate.confusion(population, size, counts);
+    }
+
+    // function that forgets the genotypes queued by the previous batch
+    private void startBatch() {
+        if (pending != null) {
+            pending.clear();
+            return;
+        }
+        batch++;
+        if (batch == Integer.MAX_VALUE) {
+            Arrays.fill(queuedIn, 0);
+            batch = 1;
+        }
+    }
+
+    /**
+     * function that returns where a genotype was queued in this batch
+     * 
+     * @param rule, packed rule
+     * @return its slot in missRules, or -1 if it is not queued
+     */
+    private int queued(long rule) {
+        if (pending != null) {
+            Integer slot = pending.get(rule);
+            return slot == null ? -1 : slot;
+        }
+        return queuedIn[(int) rule] == batch ? queuedSlot[(int) rule] : -1;
+    }
+
+    private void queue(long rule, int slot) {
+        if (pending != null) {
+            pending.put(rule, slot);
+        } else {
+            queuedIn[(int) rule] = batch;
+            queuedSlot[(int) rule] = slot;
+        }
+    }
+
+    /**
+     * function that returns the cached fitness of a rule
+     * 
+     * @param rule, packed rule
+     * @return fitness, or NaN if the rule has not been scored
+     */
+    private double lookup(long rule) {
+        if (table != null) {
+            return table[(int) rule];
+        }
+        Double cached = lru.get(rule);
+        if (cached == null) {
+            return Double.NaN;
+        }
+        return cached;
+    }
+
+    private void store(long rule, double f) {
+        if (table != null) {
+            table[(int) rule] = f;
+        } else {
+            lru.put(rule, f);
+        }
+    }
+
+    // number of individuals served from the cache
+    synchronized long hits() {
+        return hits;
+    }
+
+    // number of individuals that had to be evaluated
+    synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
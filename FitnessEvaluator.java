@@ -0,0 +1,62 @@
+/**
+ * Scores a population of packed rules against the training data. The GA only
+ * talks to this interface, so the way the work is spread over threads (or
+ * cached) can be swapped without touching the generational loop.
+ */
+interface FitnessEvaluator extends AutoCloseable {
+
+    /**
+     * function that calculates and stores the fitness of the first size
+     * individuals of the population
+     *
+     * @param population, packed rules
+     * @param size,       number of individuals to evaluate
+     * @param fitness,    array the fitness of individual i is written to
+     */
+    void evaluate(long[] population, int size, double[] fitness);
+
+    /**
+     * function that works out the confusion matrix of the first size individuals
+     * of the population, for callers that need more than one number per rule
+     *
+     * @param population, packed rules
+     * @param size,       number of individuals
+     * @param counts,     TP, FP, FN and TN of individual i are written at 4 * i
+     */
+    void confusion(long[] population, int size, int[] counts);
+
+    /**
+     * function that picks the evaluator for some training rows: the histogram
+     * when the rows fit in one, otherwise the column bitsets whenever the
+     * feature pairs start at bit 0, with the population split over the threads,
+     * and the row scan (split over the threads if there is more than one) for
+     * any other layout
+     *
+     * @param rows,      packed training instances
+     * @param labelBit,  index of the YES/NO bit
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param remaining, bit r set if row r is counted, or null for every row
+     * @param threads,   threads the evaluator may use
+     * @return the evaluator, not cached
+     */
+    static FitnessEvaluator create(long[] rows, int labelBit, long pairMask, long[] remaining, int threads) {
+        // scoring 2^n patterns only pays off when there are more rows than that
+        int features = Long.bitCount(pairMask);
+        if (features <= HistogramEvaluator.maxFeatures && (1 << features) <= rows.length
+                && HistogramEvaluator.supports(rows, pairMask, remaining)) {
+            return new HistogramEvaluator(rows, labelBit, features, remaining);
+        }
+        if (pairMask == Rules.pairMask(features)) {
+            return new ColumnEvaluator(rows, labelBit, pairMask, remaining, threads);
+        }
+        if (threads > 1) {
+            return new ParallelEvaluator(rows, labelBit, pairMask, remaining, threads);
+        }
+        return new RowScanEvaluator(rows, labelBit, pairMask, remaining);
+    }
+
+    // releases any threads held by the evaluator
+    @Override
+    default void close() {
+    }
+}
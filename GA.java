@@ -0,0 +1,660 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Arrays;
+
+class GA {
+
+    // why a run stopped
+    enum StopReason {
+        GENERATIONS,
+        TIME_BUDGET,
+        PLATEAU,
+        TARGET_FITNESS
+    }
+
+    // initialising the datasets for both training and testing data, one packed
+    // instance per row
+    long[] trainingData;
+    long[] testingData;
+
+    // static final variables needed; bits is the width of the genome of the
+    // standard indicators, runs over other registries use genomeBits
+    static final int bits = IndicatorRegistry.standard.genomeBits();
+    static final int cacheSize = 1 << 16;
+    private static final int checkpointMagic = 0x47414332;
+
+    // parameters of the run
+    final GAConfig config;
+    final int populationSize;
+    private final int maxGenerations;
+    private final double crossoverProbability;
+    private final double mutationProbability;
+    private final int tournamentSize;
+
+    // layout of the genome, from the indicator registry of the config
+    final int genomeBits;
+    final int labelBit;
+    final long pairMask;
+
+    // random numbers of this population only
+    Rng random;
+
+    // array to store the population, one packed rule per individual, and the
+    // buffer the next generation is bred into before the two are swapped
+    long[] population;
+    private long[] nextPopulation;
+
+    // scratch space reused by every tournament: the individuals drawn, and the
+    // number of the tournament each individual was last drawn in
+    private final int[] tournament;
+    private final int[] drawnIn;
+    private int tournamentNumber = 0;
+
+    // array to store the fitness
+    double[] fitness;
+
+    // scores the population against the training data, through the cache
+    FitnessEvaluator evaluator;
+    FitnessCache cache;
+
+    // telemetry: listeners told about every generation, the number of the
+    // current generation and the time spent in selection during it
+    final ArrayList<GenerationListener> listeners = new ArrayList<GenerationListener>();
+    int generation = 0;
+    private long selectionNanos = 0;
+
+    // stopping state: time spent in run() so far, the best fitness seen and the
+    // number of generations since it last improved
+    private long elapsedNanos = 0;
+    private double bestSoFar = 0.0;
+    private int stalled = 0;
+
+    // Constructor that runs the GA on a single thread and prints the best rule
+    public GA(long[] rows) {
+        this(rows, 1);
+    }
+
+    /**
+     * Constructor that runs the GA and prints the best rule
+     * 
+     * @param rows,    packed instances of the modelling class, in time order
+     * @param threads, number of threads used to evaluate the population
+     */
+    public GA(long[] rows, int threads) {
+        this(rows, threads, new ArrayList<GenerationListener>());
+    }
+
+    /**
+     * Constructor that runs the GA, reporting every generation to the listeners,
+     * and prints the best rule
+     * 
+     * @param rows,      packed instances of the modelling class, in time order
+     * @param threads,   number of threads used to evaluate the population
+     * @param listeners, told about every generation
+     */
+    public GA(long[] rows, int threads, List<GenerationListener> listeners) {
+        this(GAConfig.builder().threads(threads).build(), rows);
+        this.listeners.addAll(listeners);
+        run();
+        printBest();
+        close();
+    }
+
+    /**
+     * Constructor that prepares a run: the data is split, the first population
+     * is generated and evaluated, and the caller then calls run() or step()
+     * 
+     * @param config, parameters of the run
+     * @param rows,   packed instances of the modelling class, in time order
+     */
+    public GA(GAConfig config, long[] rows) {
+        this(config, prepareData(rows, config.training), null,
+                config.seeded ? new Rng(config.seed) : Rng.unseeded());
+    }
+
+    /**
+     * Constructor for a population over data that has already been split,
+     * evolved by the caller one generation at a time. Used for the islands of
+     * the island model and the rounds of sequential covering
+     * 
+     * @param config,    parameters of the run
+     * @param split,     packed training data followed by packed testing data
+     * @param evaluator, scores the population, or null for the default
+     *                   evaluator behind a fitness cache
+     * @param random,    random numbers for this population only
+     */
+    GA(GAConfig config, long[][] split, FitnessEvaluator evaluator, Rng random) {
+        this(config, split, evaluator, random, null);
+    }
+
+    /**
+     * Constructor for a population that starts from the individuals of an
+     * earlier run, for example the final population of the previous
+     * walk-forward window. The first generation is evaluated once, on this
+     * run's data
+     * 
+     * @param config,      parameters of the run
+     * @param split,       packed training data followed by packed testing data
+     * @param evaluator,   scores the population, or null for the default
+     *                     evaluator behind a fitness cache
+     * @param random,      random numbers for this population only
+     * @param individuals, packed rules to start from, or null for a random
+     *                     population; extra ones are ignored, and if there are
+     *                     fewer than the population size the rest is drawn at
+     *                     random
+     */
+    GA(GAConfig config, long[][] split, FitnessEvaluator evaluator, Rng random, long[] individuals) {
+        this(config, split, evaluator);
+        this.random = random;
+        int given = individuals == null ? 0 : Math.min(individuals.length, populationSize);
+        if (given > 0) {
+            System.arraycopy(individuals, 0, population, 0, given);
+        }
+        generatePopulation(given);
+        evaluate();
+        bestSoFar = fitness[best()];
+    }
+
+    /**
+     * Constructor for a run that carries on from a checkpoint. The population,
+     * its fitness, the stopping state and the random numbers are all read from
+     * the file, so nothing is generated or evaluated before run()
+     * 
+     * @param config,     parameters of the run, the same as the checkpointed run
+     * @param split,      packed training data followed by packed testing data
+     * @param evaluator,  scores the population, or null for the default
+     *                    evaluator behind a fitness cache
+     * @param checkpoint, checkpoint file
+     * @throws IOException if the file cannot be read or is for a different run
+     */
+    GA(GAConfig config, long[][] split, FitnessEvaluator evaluator, File checkpoint) throws IOException {
+        this(config, split, evaluator);
+        try {
+            resume(checkpoint);
+        } catch (IOException | RuntimeException e) {
+            this.evaluator.close();
+            throw e;
+        }
+    }
+
+    // Constructor that sets up the parameters, the buffers and the evaluator of
+    // a run, leaving the population and the random numbers to the caller
+    private GA(GAConfig config, long[][] split, FitnessEvaluator evaluator) {
+        this.config = config;
+        this.populationSize = config.populationSize;
+        this.maxGenerations = config.maxGenerations;
+        this.crossoverProbability = config.crossoverProbability;
+        this.mutationProbability = config.mutationProbability;
+        this.tournamentSize = config.tournamentSize;
+        this.genomeBits = config.registry.genomeBits();
+        this.labelBit = config.registry.labelBit();
+        this.pairMask = config.registry.pairMask();
+        this.population = new long[populationSize];
+        this.nextPopulation = new long[populationSize];
+        this.fitness = new double[populationSize];
+        this.tournament = new int[tournamentSize];
+        this.drawnIn = new int[populationSize];
+        this.trainingData = split[0];
+        this.testingData = split[1];
+        if (evaluator == null) {
+            evaluator = cachedEvaluator(config, trainingData, null, config.threads);
+        }
+        this.evaluator = evaluator;
+        if (evaluator instanceof FitnessCache) {
+            this.cache = (FitnessCache) evaluator;
+        }
+    }
+
+    /**
+     * function that builds the default evaluator of a run: the best evaluator for
+     * the rows behind a fitness cache, both laid out by the registry of the
+     * config
+     * 
+     * @param config,    parameters of the run
+     * @param rows,      packed training instances
+     * @param remaining, bit r set if row r is counted, or null for every row
+     * @param threads,   number of threads used to evaluate
+     * @return the evaluator
+     */
+    static FitnessEvaluator cachedEvaluator(GAConfig config, long[] rows, long[] remaining, int threads) {
+        IndicatorRegistry registry = config.registry;
+        return new FitnessCache(
+                FitnessEvaluator.create(rows, registry.labelBit(), registry.pairMask(), remaining, threads),
+                registry.genomeBits(), cacheSize);
+    }
+
+    /**
+     * function that runs generations until one of the stopping criteria is met,
+     * writing a checkpoint on the configured interval and when it stops
+     * 
+     * @return why the run stopped
+     */
+    StopReason run() {
+        long start = System.nanoTime() - elapsedNanos;
+        StopReason reason = stopReason();
+        while (reason == null) {
+            step();
+            elapsedNanos = System.nanoTime() - start;
+            if (config.checkpointFile != null && generation % config.checkpointInterval == 0) {
+                writeCheckpoint(config.checkpointFile);
+            }
+            reason = stopReason();
+        }
+        if (config.checkpointFile != null && generation % config.checkpointInterval != 0) {
+            writeCheckpoint(config.checkpointFile);
+        }
+        return reason;
+    }
+
+    // function that runs one generation and updates the stopping state
+    void step() {
+        nextGeneration();
+        double f = fitness[best()];
+        if (f > bestSoFar) {
+            bestSoFar = f;
+            stalled = 0;
+        } else {
+            stalled++;
+        }
+    }
+
+    // function that returns why the run should stop, or null to keep going
+    StopReason stopReason() {
+        if (config.targetFitness > 0 && bestSoFar >= config.targetFitness) {
+            return StopReason.TARGET_FITNESS;
+        }
+        if (generation >= maxGenerations) {
+            return StopReason.GENERATIONS;
+        }
+        if (config.timeBudgetMillis > 0 && elapsedNanos >= config.timeBudgetMillis * 1000000L) {
+            return StopReason.TIME_BUDGET;
+        }
+        if (config.plateauGenerations > 0 && stalled >= config.plateauGenerations) {
+            return StopReason.PLATEAU;
+        }
+        return null;
+    }
+
+    // function that releases the threads of the evaluator
+    void close() {
+        evaluator.close();
+    }
+
+    /**
+     * function that writes the state of the run to a binary checkpoint: the
+     * population, its fitness, the stopping state and the state of the random
+     * numbers. The file is replaced in one step so a half written checkpoint is
+     * never read
+     * 
+     * @param file, checkpoint file
+     */
+    void writeCheckpoint(File file) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(checkpointMagic);
+                out.writeInt(genomeBits);
+                out.writeInt(populationSize);
+                out.writeInt(generation);
+                out.writeInt(stalled);
+                out.writeDouble(bestSoFar);
+                out.writeLong(elapsedNanos);
+                for (int i = 0; i < populationSize; i++) {
+                    out.writeLong(population[i]);
+                    out.writeDouble(fitness[i]);
+                }
+                random.writeTo(out);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * function that restores the state of a run from a checkpoint, so run()
+     * carries on where the checkpointed run stopped
+     * 
+     * @param file, checkpoint file
+     * @throws IOException if the file cannot be read or is for a different run
+     */
+    private void resume(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != checkpointMagic || in.readInt() != genomeBits || in.readInt() != populationSize) {
+                throw new IOException("checkpoint " + file + " is not for this GA");
+            }
+            generation = in.readInt();
+            stalled = in.readInt();
+            bestSoFar = in.readDouble();
+            elapsedNanos = in.readLong();
+            for (int i = 0; i < populationSize; i++) {
+                population[i] = in.readLong();
+                fitness[i] = in.readDouble();
+            }
+            random = Rng.readFrom(in);
+        }
+    }
+
+    // function that replaces the population with the next generation and
+    // evaluates it. The next generation is bred into a second buffer which is then
+    // swapped with the population, so a generation allocates nothing
+    void nextGeneration() {
+        boolean timing = !listeners.isEmpty();
+        long allocatedBefore = timing ? GenerationStats.allocatedBytes() : 0L;
+        long hitsBefore = timing && cache != null ? cache.hits() : 0L;
+        long missesBefore = timing && cache != null ? cache.misses() : 0L;
+        long start = System.nanoTime();
+        selectionNanos = 0;
+
+        long[] tempPopulation = nextPopulation;
+        int currentIndividual = 0;
+        while (currentIndividual < populationSize) {
+            double randomProb = random.nextDouble();
+            if (randomProb <= mutationProbability || (populationSize - currentIndividual) == 1) {
+                int parent = select(timing);
+
+                long offspring = twoPointMutaiton(parent);
+
+                tempPopulation[currentIndividual] = offspring;
+                currentIndividual++;
+            } else if (randomProb <= mutationProbability + crossoverProbability) {
+                int p1 = select(timing);
+                int p2 = select(timing);
+
+                twoPointCrossover(p1, p2, tempPopulation, currentIndividual);
+                currentIndividual += 2;
+            } else {
+                // reproduction, the winner is copied unchanged
+                tempPopulation[currentIndividual] = population[select(timing)];
+                currentIndividual++;
+            }
+        }
+        nextPopulation = population;
+        population = tempPopulation;
+        long bred = System.nanoTime();
+        evaluate();
+        generation++;
+
+        if (timing) {
+            long evaluateNanos = System.nanoTime() - bred;
+            long hits = cache != null ? cache.hits() - hitsBefore : 0L;
+            long misses = cache != null ? cache.misses() - missesBefore : populationSize;
+            long allocated = allocatedBefore < 0 ? -1L : GenerationStats.allocatedBytes() - allocatedBefore;
+            GenerationStats stats = GenerationStats.of(generation, fitness, populationSize, evaluateNanos,
+                    selectionNanos, bred - start - selectionNanos, hits, misses, allocated);
+            for (GenerationListener listener : listeners) {
+                listener.generation(stats);
+            }
+        }
+    }
+
+    /**
+     * function that runs a tournament, adding the time it takes to the
+     * selection time of the generation when timing
+     * 
+     * @param timing, true if the generation is being timed
+     * @return individual selected
+     */
+    private int select(boolean timing) {
+        if (!timing) {
+            return tournamentSelection();
+        }
+        long start = System.nanoTime();
+        int winner = tournamentSelection();
+        selectionNanos += System.nanoTime() - start;
+        return winner;
+    }
+
+    // function that returns the index of the fittest individual
+    int best() {
+        double f = 0.0;
+        int index = 0;
+        for (int i = 0; i < populationSize; i++) {
+            if (fitness[i] > f) {
+                f = fitness[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    // function that prints the fittest individual and its accuracy on the test
+    // data
+    void printBest() {
+        int index = best();
+        System.out.println("Best Individual: " + index);
+        System.out.println("Fitness: " + fitness[index]);
+        System.out.print("[");
+        for (int i = 0; i < genomeBits; i++) {
+            System.out.print(Rules.bit(population[index], i));
+        }
+        System.out.println("]");
+        System.out.println(config.registry.describe(population[index]));
+        accuracy(population[index]);
+    }
+
+    /**
+     * function that splits the packed instances of the modelling class into
+     * training and testing data
+     * 
+     * @param data,     packed instances, in time order
+     * @param training, fraction of the data used for training
+     * @return the packed training data followed by the packed testing data
+     */
+    static long[][] prepareData(long[] data, double training) {
+        int trainingSize = (int) Math.round(data.length * training);
+        return splitData(data, trainingSize);
+    }
+
+    /**
+     * function that splits the inputted data from the modeelling class into
+     * training and testing data
+     * 
+     * @param data,         packed instances
+     * @param trainingSize, how many inputs are used for training
+     * @return the training data followed by the testing data
+     */
+    private static long[][] splitData(long[] data, int trainingSize) {
+        long[][] split = new long[2][];
+        split[0] = Arrays.copyOfRange(data, 0, trainingSize);
+        split[1] = Arrays.copyOfRange(data, trainingSize, data.length);
+        return split;
+    }
+
+    /**
+     * function that performs tournament selection and returns the winner
+     * 
+     * @return individual selected
+     */
+    int tournamentSelection() {
+        tournamentNumber++;
+        if (tournamentNumber == Integer.MAX_VALUE) {
+            Arrays.fill(drawnIn, 0);
+            tournamentNumber = 1;
+        }
+
+        for (int i = 0; i < tournamentSize; i++) {
+            int chosen = -1;
+            while (chosen == -1) {
+                chosen = random.nextInt(populationSize);
+                if (drawnIn[chosen] != tournamentNumber) {
+                    tournament[i] = chosen;
+                    drawnIn[chosen] = tournamentNumber;
+                } else {
+                    chosen = -1;
+                }
+            }
+        }
+        int winner = 0;
+        for (int i = 1; i < tournamentSize; i++) {
+            if (fitness[tournament[winner]] < fitness[tournament[i]]) {
+                winner = i;
+            }
+        }
+        return tournament[winner];
+    }
+
+    // function that calculates and stores the fitness of each individual in the
+    // population
+    private void evaluate() {
+        evaluator.evaluate(population, populationSize, fitness);
+    }
+
+    /**
+     * function that checks if a rule covers an instance, returns true or false
+     * 
+     * @param rule,     packed rule
+     * @param instance, packed instance
+     * @return boolean, true if covers, false otherwise
+     */
+    private boolean covers(long rule, long instance) {
+        return Rules.covers(rule, instance, pairMask);
+    }
+
+    /**
+     * function that performs a two point mutation, given a index for the parent
+     * 
+     * @param parent, index of the parent
+     * @return offspring, the packed offspring
+     */
+    private long twoPointMutaiton(int parent) {
+        return twoPointMutation(population[parent], genomeBits, random);
+    }
+
+    /**
+     * function that flips two random bits of a rule. When both points are the
+     * same bit that bit is flipped once, so the offspring always differs from
+     * its parent, as in the original int[] mutation
+     * 
+     * @param parent,     packed rule
+     * @param genomeBits, number of bits in a rule
+     * @param random,     random numbers
+     * @return the packed offspring
+     */
+    static long twoPointMutation(long parent, int genomeBits, Rng random) {
+        int point1 = random.nextInt(genomeBits);
+        int point2 = random.nextInt(genomeBits);
+        long flip = (1L << point1) | (1L << point2);
+        return parent ^ flip;
+    }
+
+    /**
+     * function that performs a crossover, given two indexes for the parents, and
+     * writes the two offsprings next to each other in the given buffer
+     * 
+     * @param p1,        index of first parent
+     * @param p2,        index of second parent
+     * @param offspring, buffer the offsprings are written to
+     * @param index,     where the first offspring goes
+     */
+    private void twoPointCrossover(int p1, int p2, long[] offspring, int index) {
+        twoPointCrossover(population[p1], population[p2], offspring, index, genomeBits, random);
+    }
+
+    /**
+     * function that swaps a random run of bits between two rules, starting in
+     * the first half of the genome, and writes the two offsprings next to each
+     * other in the given buffer
+     * 
+     * @param p1,         first packed rule
+     * @param p2,         second packed rule
+     * @param offspring,  buffer the offsprings are written to
+     * @param index,      where the first offspring goes
+     * @param genomeBits, number of bits in a rule
+     * @param random,     random numbers
+     */
+    static void twoPointCrossover(long p1, long p2, long[] offspring, int index, int genomeBits, Rng random) {
+        int startPoint = random.nextInt(genomeBits / 2);
+        int endPoint = random.nextInt(genomeBits);
+        while (endPoint <= startPoint) {
+            endPoint = random.nextInt(genomeBits);
+        }
+        // bits from startPoint up to (but not including) endPoint are swapped
+        long swap = (1L << endPoint) - (1L << startPoint);
+        offspring[index] = (p1 & ~swap) | (p2 & swap);
+        offspring[index + 1] = (p2 & ~swap) | (p1 & swap);
+    }
+
+    // function that draws the initial population at random from individual from on
+    private void generatePopulation(int from) {
+        for (int i = from; i < populationSize; i++) {
+            population[i] = randomRule(genomeBits, random);
+        }
+    }
+
+    // function that returns a rule with every bit drawn at random
+    static long randomRule(int genomeBits, Rng random) {
+        long rule = 0L;
+        for (int j = 0; j < genomeBits; j++) {
+            rule |= (long) random.nextInt(2) << j;
+        }
+        return rule;
+    }
+
+    /**
+     * function that calculates and displays how many instances the rule covers on
+     * the test data, and the accuracy of that rule in terms of the prediction
+     * 
+     * @param rule, packed rule
+     */
+    private void accuracy(long rule) {
+        int[] result = testResult(rule);
+        int instances = result[0];
+        int correctPredictions = result[1];
+        System.out.println("Instances: " + instances);
+        if (instances > 0) {
+            System.out.println("Accuracy: " + (double) correctPredictions / instances);
+        }
+    }
+
+    /**
+     * function that counts how many test instances the rule covers and how many
+     * of those it predicts correctly
+     * 
+     * @param rule, packed rule
+     * @return the covered instances followed by the correct predictions
+     */
+    int[] testResult(long rule) {
+        return testResult(rule, testingData, labelBit, pairMask);
+    }
+
+    /**
+     * function that counts how many instances of some data the rule covers and
+     * how many of those it predicts correctly
+     * 
+     * @param rule,     packed rule
+     * @param data,     packed instances
+     * @param labelBit, index of the YES/NO bit
+     * @param pairMask, mask with the first bit of every feature pair set
+     * @return the covered instances followed by the correct predictions
+     */
+    static int[] testResult(long rule, long[] data, int labelBit, long pairMask) {
+        int instances = 0;
+        int correctPredictions = 0;
+        for (int i = 0; i < data.length; i++) {
+            long line = data[i];
+            if (Rules.covers(rule, line, pairMask)) {
+                instances++;
+                if (Rules.bit(line, labelBit) == Rules.bit(rule, labelBit)) {
+                    correctPredictions++;
+                }
+            }
+        }
+        return new int[] { instances, correctPredictions };
+    }
+
+    /**
+     * function that converts a rule over the standard indicators to a string
+     * 
+     * @param packedRule, packed rule
+     * @return rule as a string
+     */
+    static String toString(long packedRule) {
+        return IndicatorRegistry.standard.describe(packedRule);
+    }
+}
\ No newline at end of file
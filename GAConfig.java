@@ -0,0 +1,219 @@
+import java.io.File;
+
+/**
+ * Parameters of a GA run. The defaults are the values the GA has always used;
+ * anything else is set through the builder:
+ * 
+ * GAConfig config = GAConfig.builder().populationSize(500).maxGenerations(200)
+ * .plateauGenerations(20).build();
+ * 
+ * Besides the generation limit a run can stop when a time budget is used up,
+ * when the best fitness has not improved for a number of generations, or when a
+ * target fitness is reached, and it can write a checkpoint every few
+ * generations so it can be resumed.
+ */
+class GAConfig {
+
+    final int populationSize;
+    final int maxGenerations;
+    final double crossoverProbability;
+    final double mutationProbability;
+    final int tournamentSize;
+    final double training;
+    final int threads;
+    final long seed;
+    final boolean seeded;
+
+    // the indicators the data was built from, which set the width of the genome
+    final IndicatorRegistry registry;
+
+    // stopping criteria, 0 when not used
+    final long timeBudgetMillis;
+    final int plateauGenerations;
+    final double targetFitness;
+
+    // checkpointing, null when not used
+    final File checkpointFile;
+    final int checkpointInterval;
+
+    private GAConfig(Builder b) {
+        this.populationSize = b.populationSize;
+        this.maxGenerations = b.maxGenerations;
+        this.crossoverProbability = b.crossoverProbability;
+        this.mutationProbability = b.mutationProbability;
+        this.tournamentSize = b.tournamentSize;
+        this.training = b.training;
+        this.threads = b.threads;
+        this.seed = b.seed;
+        this.seeded = b.seeded;
+        this.registry = b.registry;
+        this.timeBudgetMillis = b.timeBudgetMillis;
+        this.plateauGenerations = b.plateauGenerations;
+        this.targetFitness = b.targetFitness;
+        this.checkpointFile = b.checkpointFile;
+        this.checkpointInterval = b.checkpointInterval;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    // function that returns a builder starting from this config
+    Builder toBuilder() {
+        Builder b = new Builder();
+        b.populationSize = populationSize;
+        b.maxGenerations = maxGenerations;
+        b.crossoverProbability = crossoverProbability;
+        b.mutationProbability = mutationProbability;
+        b.tournamentSize = tournamentSize;
+        b.training = training;
+        b.threads = threads;
+        b.seed = seed;
+        b.seeded = seeded;
+        b.registry = registry;
+        b.timeBudgetMillis = timeBudgetMillis;
+        b.plateauGenerations = plateauGenerations;
+        b.targetFitness = targetFitness;
+        b.checkpointFile = checkpointFile;
+        b.checkpointInterval = checkpointInterval;
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return "populationSize=" + populationSize + " maxGenerations=" + maxGenerations + " crossoverProbability="
+                + crossoverProbability + " mutationProbability=" + mutationProbability + " tournamentSize="
+                + tournamentSize;
+    }
+
+    static class Builder {
+        private int populationSize = 100;
+        private int maxGenerations = 10;
+        private double crossoverProbability = 0.8;
+        private double mutationProbability = 0.2;
+        private int tournamentSize = 7;
+        private double training = 0.7;
+        private int threads = 1;
+        private long seed = 0L;
+        private boolean seeded = false;
+        private IndicatorRegistry registry = IndicatorRegistry.standard;
+        private long timeBudgetMillis = 0L;
+        private int plateauGenerations = 0;
+        private double targetFitness = 0.0;
+        private File checkpointFile = null;
+        private int checkpointInterval = 10;
+
+        private Builder() {
+        }
+
+        // number of individuals in the population
+        Builder populationSize(int populationSize) {
+            this.populationSize = populationSize;
+            return this;
+        }
+
+        // most generations run after the first population
+        Builder maxGenerations(int maxGenerations) {
+            this.maxGenerations = maxGenerations;
+            return this;
+        }
+
+        // chance that a breeding step is a crossover of two parents
+        Builder crossoverProbability(double crossoverProbability) {
+            this.crossoverProbability = crossoverProbability;
+            return this;
+        }
+
+        // chance that a breeding step is a mutation of one parent
+        Builder mutationProbability(double mutationProbability) {
+            this.mutationProbability = mutationProbability;
+            return this;
+        }
+
+        // number of individuals drawn for every tournament
+        Builder tournamentSize(int tournamentSize) {
+            this.tournamentSize = tournamentSize;
+            return this;
+        }
+
+        // fraction of the data used for training, the rest is for testing
+        Builder training(double training) {
+            this.training = training;
+            return this;
+        }
+
+        // number of threads used to evaluate the population
+        Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        // seed of the random numbers, for a repeatable run
+        Builder seed(long seed) {
+            this.seed = seed;
+            this.seeded = true;
+            return this;
+        }
+
+        // indicators of the data, the standard six unless set
+        Builder registry(IndicatorRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        // stop once the run has taken this long, 0 for no limit
+        Builder timeBudgetMillis(long timeBudgetMillis) {
+            this.timeBudgetMillis = timeBudgetMillis;
+            return this;
+        }
+
+        // stop once the best fitness has not improved for this many generations,
+        // 0 for no limit
+        Builder plateauGenerations(int plateauGenerations) {
+            this.plateauGenerations = plateauGenerations;
+            return this;
+        }
+
+        // stop once the best fitness reaches this value, 0 for no target
+        Builder targetFitness(double targetFitness) {
+            this.targetFitness = targetFitness;
+            return this;
+        }
+
+        // write a checkpoint to this file every interval generations
+        Builder checkpoint(File checkpointFile, int checkpointInterval) {
+            this.checkpointFile = checkpointFile;
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        GAConfig build() {
+            if (populationSize < 2) {
+                throw new IllegalArgumentException("population size must be at least 2");
+            }
+            if (tournamentSize < 1 || tournamentSize > populationSize) {
+                throw new IllegalArgumentException("tournament size must be between 1 and the population size");
+            }
+            if (maxGenerations < 0 || timeBudgetMillis < 0 || plateauGenerations < 0) {
+                throw new IllegalArgumentException("stopping criteria must not be negative");
+            }
+            if (mutationProbability < 0 || crossoverProbability < 0
+                    || mutationProbability + crossoverProbability > 1.0 + 1e-9) {
+                throw new IllegalArgumentException("mutation and crossover probabilities must add up to at most 1");
+            }
+            if (training <= 0 || training >= 1) {
+                throw new IllegalArgumentException("training fraction must be between 0 and 1");
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("need at least one thread");
+            }
+            if (registry == null || !registry.fitsInWord()) {
+                throw new IllegalArgumentException("the GA needs a registry of 1 to 31 indicators");
+            }
+            if (checkpointFile != null && checkpointInterval < 1) {
+                throw new IllegalArgumentException("checkpoint interval must be at least 1");
+            }
+            return new GAConfig(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * Receives the telemetry of every generation the GA completes. Listeners are
+ * called on the GA thread, after the new population has been evaluated.
+ */
+interface GenerationListener {
+
+    /**
+     * function called after every generation
+     * 
+     * @param stats, telemetry of the generation
+     */
+    void generation(GenerationStats stats);
+}
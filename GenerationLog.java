@@ -0,0 +1,50 @@
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Listener that writes one line of telemetry per generation, either as CSV
+ * with a header line or as JSON lines. It can be shared by the islands of an
+ * island run, whose lines then interleave whole.
+ */
+class GenerationLog implements GenerationListener {
+
+    enum Format {
+        CSV,
+        JSON
+    }
+
+    private final PrintStream out;
+    private final Format format;
+    private boolean headerWritten = false;
+
+    /**
+     * @param out,    stream the lines are written to
+     * @param format, CSV or JSON lines
+     */
+    GenerationLog(PrintStream out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    @Override
+    public synchronized void generation(GenerationStats s) {
+        if (format == Format.CSV) {
+            if (!headerWritten) {
+                out.println("generation,evaluateNanos,selectionNanos,variationNanos,evaluationsPerSecond,"
+                        + "cacheHitRate,bestFitness,meanFitness,fitnessStdDev,allocatedBytes");
+                headerWritten = true;
+            }
+            out.println(String.format(Locale.ROOT, "%d,%d,%d,%d,%.1f,%.4f,%.6f,%.6f,%.6f,%d", s.generation,
+                    s.evaluateNanos, s.selectionNanos, s.variationNanos, s.evaluationsPerSecond(),
+                    s.cacheHitRate(), s.bestFitness, s.meanFitness, s.fitnessStdDev, s.allocatedBytes));
+        } else {
+            out.println(String.format(Locale.ROOT,
+                    "{\"generation\":%d,\"evaluateNanos\":%d,\"selectionNanos\":%d,\"variationNanos\":%d,"
+                            + "\"evaluationsPerSecond\":%.1f,\"cacheHitRate\":%.4f,\"bestFitness\":%.6f,"
+                            + "\"meanFitness\":%.6f,\"fitnessStdDev\":%.6f,\"allocatedBytes\":%d}",
+                    s.generation, s.evaluateNanos, s.selectionNanos, s.variationNanos, s.evaluationsPerSecond(),
+                    s.cacheHitRate(), s.bestFitness, s.meanFitness, s.fitnessStdDev, s.allocatedBytes));
+        }
+        out.flush();
+    }
+}
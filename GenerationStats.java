@@ -0,0 +1,103 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Telemetry of one generation of the GA: where the time went, how fast
+ * individuals were scored, how well the cache did, how the fitness of the new
+ * population is spread, and how many bytes the GA thread allocated.
+ */
+class GenerationStats {
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    final int generation;
+    final long evaluateNanos;
+    final long selectionNanos;
+    final long variationNanos;
+    final int evaluations;
+    final long cacheHits;
+    final long cacheMisses;
+    final double bestFitness;
+    final double meanFitness;
+    final double fitnessStdDev;
+    final long allocatedBytes;
+
+    GenerationStats(int generation, long evaluateNanos, long selectionNanos, long variationNanos, int evaluations,
+            long cacheHits, long cacheMisses, double bestFitness, double meanFitness, double fitnessStdDev,
+            long allocatedBytes) {
+        this.generation = generation;
+        this.evaluateNanos = evaluateNanos;
+        this.selectionNanos = selectionNanos;
+        this.variationNanos = variationNanos;
+        this.evaluations = evaluations;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.bestFitness = bestFitness;
+        this.meanFitness = meanFitness;
+        this.fitnessStdDev = fitnessStdDev;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * function that works out the stats of a population after it was evaluated
+     * 
+     * @param generation,     number of the generation
+     * @param fitness,        fitness of every individual
+     * @param size,           number of individuals
+     * @param evaluateNanos,  time spent evaluating
+     * @param selectionNanos, time spent in tournament selection
+     * @param variationNanos, time spent in crossover and mutation
+     * @param cacheHits,      individuals served by the cache this generation
+     * @param cacheMisses,    individuals evaluated this generation
+     * @param allocatedBytes, bytes allocated by the GA thread this generation
+     * @return the stats
+     */
+    static GenerationStats of(int generation, double[] fitness, int size, long evaluateNanos, long selectionNanos,
+            long variationNanos, long cacheHits, long cacheMisses, long allocatedBytes) {
+        double best = 0.0;
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            best = Math.max(best, fitness[i]);
+            sum += fitness[i];
+        }
+        double mean = size == 0 ? 0.0 : sum / size;
+        double squares = 0.0;
+        for (int i = 0; i < size; i++) {
+            squares += (fitness[i] - mean) * (fitness[i] - mean);
+        }
+        double stdDev = size == 0 ? 0.0 : Math.sqrt(squares / size);
+        return new GenerationStats(generation, evaluateNanos, selectionNanos, variationNanos, size, cacheHits,
+                cacheMisses, best, mean, stdDev, allocatedBytes);
+    }
+
+    // individuals scored per second of evaluation time
+    double evaluationsPerSecond() {
+        if (evaluateNanos == 0) {
+            return 0.0;
+        }
+        return evaluations * 1e9 / evaluateNanos;
+    }
+
+    // fraction of this generation's individuals served by the cache
+    double cacheHitRate() {
+        long total = cacheHits + cacheMisses;
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) cacheHits / total;
+    }
+
+    /**
+     * function that returns the bytes allocated so far by the current thread, or
+     * -1 if the JVM does not track it. Work done by evaluator threads is not
+     * included.
+     * 
+     * @return allocated bytes
+     */
+    static long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1L;
+    }
+}
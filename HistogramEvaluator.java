@@ -0,0 +1,170 @@
+/**
+ * Evaluator that never looks at the training rows after it is built. With n
+ * binary features a row can only be one of 2^n feature patterns with one of two
+ * labels, so the rows are counted once into a histogram of 2^n patterns x 2
+ * labels. A rule is then scored by checking which patterns it covers, which
+ * costs O(2^n) however many rows there are: 64 lookups for the six features of
+ * the modelling class. It gives exactly the fitness of the row scan.
+ *
+ * Only rows whose feature pairs are all one-hot (exactly one of TRUE/FALSE set)
+ * can be put in a pattern; FitnessEvaluator.create falls back to the row scan
+ * when that is not the case or when there are too many features.
+ */
+class HistogramEvaluator implements FitnessEvaluator {
+
+    // most features the histogram is built for (2^12 patterns)
+    static final int maxFeatures = 12;
+
+    private final int labelBit;
+    private final long pairMask;
+
+    // packed instance (without label) of every pattern, and the number of rows
+    // of every pattern with label NO and YES
+    private final long[] patterns;
+    private final int[] no;
+    private final int[] yes;
+    private final int totalNo;
+    private final int totalYes;
+
+    /**
+     * @param rows,      packed training instances, with one-hot feature pairs
+     * @param labelBit,  index of the YES/NO bit
+     * @param features,  number of features; the pairs are the lowest 2 *
+     *                   features bits
+     * @param remaining, bit r set if row r is counted, or null for every row
+     */
+    HistogramEvaluator(long[] rows, int labelBit, int features, long[] remaining) {
+        if (features > maxFeatures) {
+            throw new IllegalArgumentException("too many features for a histogram: " + features);
+        }
+        this.labelBit = labelBit;
+        this.pairMask = Rules.pairMask(features);
+        int size = 1 << features;
+        this.patterns = new long[size];
+        this.no = new int[size];
+        this.yes = new int[size];
+        for (int p = 0; p < size; p++) {
+            patterns[p] = Rules.packFeatures(p, features, 0);
+        }
+        int countNo = 0;
+        int countYes = 0;
+        for (int r = 0; r < rows.length; r++) {
+            if (remaining != null && (remaining[r >>> 6] >>> r & 1L) == 0) {
+                continue;
+            }
+            long row = rows[r];
+            if (!oneHot(row, pairMask)) {
+                throw new IllegalArgumentException("row " + r + " is not one-hot in every feature pair");
+            }
+            int pattern = (int) compress(row & pairMask);
+            if ((row >>> labelBit & 1L) == 1L) {
+                yes[pattern]++;
+                countYes++;
+            } else {
+                no[pattern]++;
+                countNo++;
+            }
+        }
+        this.totalNo = countNo;
+        this.totalYes = countYes;
+    }
+
+    /**
+     * function that checks if the rows can be put in a histogram: the pair mask
+     * covers the lowest pairs only, there are few enough features and every row
+     * (of those counted) is one-hot in every pair
+     *
+     * @param rows,      packed training instances
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param remaining, bit r set if row r is counted, or null for every row
+     * @return true if a HistogramEvaluator can be built
+     */
+    static boolean supports(long[] rows, long pairMask, long[] remaining) {
+        int features = Long.bitCount(pairMask);
+        if (features > maxFeatures || pairMask != Rules.pairMask(features)) {
+            return false;
+        }
+        for (int r = 0; r < rows.length; r++) {
+            if (remaining != null && (remaining[r >>> 6] >>> r & 1L) == 0) {
+                continue;
+            }
+            if (!oneHot(rows[r], pairMask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void evaluate(long[] population, int size, double[] fitness) {
+        for (int i = 0; i < size; i++) {
+            long rule = population[i];
+            long covered = covered(rule);
+            int coveredNo = (int) (covered >>> 32);
+            int coveredYes = (int) covered;
+            // TP and FN are the rows with the rule's label, FP and TN the others
+            if ((rule >>> labelBit & 1L) == 1L) {
+                fitness[i] = RowScanEvaluator.fitness(coveredYes, coveredNo, totalYes - coveredYes,
+                        totalNo - coveredNo);
+            } else {
+                fitness[i] = RowScanEvaluator.fitness(coveredNo, coveredYes, totalNo - coveredNo,
+                        totalYes - coveredYes);
+            }
+        }
+    }
+
+    @Override
+    public void confusion(long[] population, int size, int[] counts) {
+        for (int i = 0; i < size; i++) {
+            long rule = population[i];
+            long covered = covered(rule);
+            int coveredNo = (int) (covered >>> 32);
+            int coveredYes = (int) covered;
+            int o = 4 * i;
+            if ((rule >>> labelBit & 1L) == 1L) {
+                counts[o] = coveredYes;
+                counts[o + 1] = coveredNo;
+                counts[o + 2] = totalYes - coveredYes;
+                counts[o + 3] = totalNo - coveredNo;
+            } else {
+                counts[o] = coveredNo;
+                counts[o + 1] = coveredYes;
+                counts[o + 2] = totalNo - coveredNo;
+                counts[o + 3] = totalYes - coveredYes;
+            }
+        }
+    }
+
+    // function that returns the covered NO rows in the high half and the
+    // covered YES rows in the low half
+    private long covered(long rule) {
+        int coveredNo = 0;
+        int coveredYes = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            if (Rules.covers(rule, patterns[p], pairMask)) {
+                coveredNo += no[p];
+                coveredYes += yes[p];
+            }
+        }
+        return (long) coveredNo << 32 | (coveredYes & 0xffffffffL);
+    }
+
+    // function that checks that exactly one bit of every pair of a row is set
+    private static boolean oneHot(long row, long pairMask) {
+        long first = row & pairMask;
+        long second = row >>> 1 & pairMask;
+        return (first ^ second) == pairMask;
+    }
+
+    // function that gathers the even bits of a word into its lowest bits, so
+    // bit 2f becomes bit f
+    private static long compress(long evenBits) {
+        long x = evenBits & 0x5555555555555555L;
+        x = (x | x >>> 1) & 0x3333333333333333L;
+        x = (x | x >>> 2) & 0x0f0f0f0f0f0f0f0fL;
+        x = (x | x >>> 4) & 0x00ff00ff00ff00ffL;
+        x = (x | x >>> 8) & 0x0000ffff0000ffffL;
+        x = (x | x >>> 16) & 0x00000000ffffffffL;
+        return x;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * A binary feature worked out from a stream of prices. Prices are given one at
+ * a time: once enough have been pushed, feature() answers for the next price
+ * from the state of the previous ones, and push() then adds that price to the
+ * state. Both should be O(1) and allocation free.
+ *
+ * New indicators are added by implementing this interface and registering a
+ * factory for it, with a name, in an IndicatorRegistry; the width of the GA's
+ * genome follows from the registry.
+ */
+interface Indicator {
+
+    // number of prices that must be pushed before feature() can be called
+    int warmUp();
+
+    /**
+     * function that works out the feature of a new price from the previous
+     * prices without changing the state
+     *
+     * @param price, the new price
+     * @return the feature
+     */
+    boolean feature(double price);
+
+    /**
+     * function that adds a price to the state
+     *
+     * @param price, the new price
+     */
+    void push(double price);
+
+    // creates indicators with empty state, one for every stream of prices
+    interface Factory {
+        Indicator create();
+    }
+}
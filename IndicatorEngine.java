@@ -0,0 +1,139 @@
+/**
+ * Streaming indicator engine. Prices are pushed one at a time and the six
+ * binary features of each new price are worked out from rolling state over the
+ * previous prices, so building the features of a whole series is a single
+ * linear pass with no allocation:
+ * 
+ * SMA - rolling sums over the short and long windows
+ * EMA - recursive EMAs, seeded with the SMA of the first prices
+ * TBR - rolling maximum kept in a monotonic deque
+ * VOL - Welford mean and variance over the sliding long window
+ * MOM - difference with the price that leaves the long window
+ * 
+ * The rolling state is made of the Indicators building blocks (Sma, Ema,
+ * RollingMax and Variance), so the values are exactly those of the standard
+ * indicators. Indicator values are rounded to two decimal places before they
+ * are compared, as they always have been. This is the standard
+ * IndicatorRegistry fused into one class that shares its rolling state between
+ * the six features; other indicator sets go through FeatureEngine.
+ */
+class IndicatorEngine {
+
+    // number of features produced for every price
+    static final int features = 6;
+
+    final int shortDays;
+    final int longDays;
+    private long count = 0;
+
+    // rolling means of the previous shortDays and longDays prices; the long one
+    // also gives the price that leaves the long window
+    private final Indicators.Sma shortSma;
+    private final Indicators.Sma longSma;
+
+    // recursive EMAs of the previous prices
+    private final Indicators.Ema shortEma;
+    private final Indicators.Ema longEma;
+
+    // maximum and sliding variance of the long window
+    private final Indicators.RollingMax max;
+    private final Indicators.Variance variance;
+
+    /**
+     * @param shortDays, number of days in the short window
+     * @param longDays,  number of days in the long window
+     */
+    IndicatorEngine(int shortDays, int longDays) {
+        if (shortDays < 1 || shortDays > longDays) {
+            throw new IllegalArgumentException("short window must be between 1 and " + longDays + " days");
+        }
+        this.shortDays = shortDays;
+        this.longDays = longDays;
+        this.shortSma = new Indicators.Sma(shortDays);
+        this.longSma = new Indicators.Sma(longDays);
+        this.shortEma = new Indicators.Ema(shortDays);
+        this.longEma = new Indicators.Ema(longDays);
+        this.max = new Indicators.RollingMax(longDays);
+        this.variance = new Indicators.Variance(longDays);
+    }
+
+    // true once the long window is full and every indicator has a value
+    boolean ready() {
+        return count >= longDays;
+    }
+
+    // number of prices pushed so far
+    long count() {
+        return count;
+    }
+
+    /**
+     * function that works out the features of a new price from the previous
+     * prices and then adds the price to the rolling state
+     * 
+     * @param price, the new price
+     * @return the features, bit f set if feature f is true, or -1 while the
+     *         windows are still filling
+     */
+    int update(double price) {
+        int result = -1;
+        if (ready()) {
+            result = features(price);
+        }
+        push(price);
+        return result;
+    }
+
+    /**
+     * function that works out the features of a price from the current state
+     * without changing it
+     * 
+     * @param price, the new price
+     * @return the features, bit f set if feature f is true
+     */
+    int features(double price) {
+        double shortSmaValue = Indicators.round(shortSma.value());
+        double longSmaValue = Indicators.round(longSma.value());
+        double longEmaValue = Indicators.round(longEma.value());
+        double maxValue = max.value();
+        double tbr = Indicators.round((price - maxValue) / maxValue);
+        double vol = Indicators.round(variance.standardDeviation() / longSmaValue);
+        double mom = Indicators.round(price - longSma.oldest());
+
+        int result = 0;
+        if (shortSmaValue > longSmaValue) {
+            result |= 1;
+        }
+        if (Indicators.round(shortEma.value()) > longEmaValue) {
+            result |= 1 << 1;
+        }
+        if (longEmaValue < price) {
+            result |= 1 << 2;
+        }
+        if (tbr <= 0.00) {
+            result |= 1 << 3;
+        }
+        if (vol <= 0.03) {
+            result |= 1 << 4;
+        }
+        if (mom > 0) {
+            result |= 1 << 5;
+        }
+        return result;
+    }
+
+    /**
+     * function that adds a price to the sums, EMAs, maximum and variance
+     * 
+     * @param price, the new price
+     */
+    void push(double price) {
+        shortSma.push(price);
+        longSma.push(price);
+        shortEma.push(price);
+        longEma.push(price);
+        max.push(price);
+        variance.push(price);
+        count++;
+    }
+}
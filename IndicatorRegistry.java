@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+
+/**
+ * The ordered set of indicators a model is built from. Indicator f is feature
+ * f, so it takes the pair of genome bits 2f (TRUE) and 2f + 1 (FALSE), and the
+ * label takes the bit after the last pair: the width of the genome, its pair
+ * mask and the names used to print rules all follow from the registry. A
+ * registry is built once and never changes:
+ *
+ * IndicatorRegistry registry = IndicatorRegistry.builder().standard(14, 50)
+ * .register("RSI(14) > 70", Indicators.rsi(14, 70)).build();
+ *
+ * The GA, the evaluators and the fitness cache keep a rule in one 64-bit word,
+ * so a registry that is evolved holds at most 31 indicators (fitsInWord()). A
+ * wider registry still builds features column by column in a FeatureMatrix,
+ * but its rows cannot be packed and GAConfig refuses it.
+ */
+class IndicatorRegistry {
+
+    // the six indicators the modelling class has always used, over 14 and 50 days
+    static final IndicatorRegistry standard = builder().standard(Modelling.secondNumDays, Modelling.numDays)
+            .build();
+
+    private final String[] names;
+    private final Indicator.Factory[] factories;
+
+    private IndicatorRegistry(Builder b) {
+        this.names = b.names.toArray(new String[0]);
+        this.factories = b.factories.toArray(new Indicator.Factory[0]);
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    // number of indicators, which is the number of features
+    int features() {
+        return names.length;
+    }
+
+    // name of feature f, as printed in rules
+    String name(int f) {
+        return names[f];
+    }
+
+    // number of bits in a rule: a pair per feature and the label
+    int genomeBits() {
+        return 2 * names.length + 1;
+    }
+
+    // index of the YES/NO bit
+    int labelBit() {
+        return 2 * names.length;
+    }
+
+    // true if a rule fits in the one packed word the GA works on
+    boolean fitsInWord() {
+        return genomeBits() <= 64;
+    }
+
+    // mask with the first bit of every feature pair set, for a one-word genome
+    long pairMask() {
+        if (!fitsInWord()) {
+            throw new IllegalStateException(names.length + " features do not fit in one word");
+        }
+        return Rules.pairMask(names.length);
+    }
+
+    // function that creates an engine with fresh state for one stream of prices
+    FeatureEngine engine() {
+        Indicator[] indicators = new Indicator[factories.length];
+        for (int f = 0; f < factories.length; f++) {
+            indicators[f] = factories[f].create();
+        }
+        return new FeatureEngine(indicators);
+    }
+
+    /**
+     * function that converts a rule to a string, listing every feature whose
+     * pair is not a wildcard (or never-matching 00) with the value it needs
+     *
+     * @param rule, packed rule
+     * @return rule as a string
+     */
+    String describe(long rule) {
+        StringBuilder line = new StringBuilder("IF ");
+        for (int f = 0; f < names.length; f++) {
+            int pair = (int) (rule >>> (2 * f)) & 3;
+            if (pair == 1) {
+                line.append('{').append(names[f]).append(" = TRUE} ");
+            } else if (pair == 2) {
+                line.append('{').append(names[f]).append(" = FALSE} ");
+            }
+        }
+        line.append((rule >>> labelBit() & 1L) == 1L ? "THEN YES" : "THEN NO");
+        return line.toString();
+    }
+
+    static class Builder {
+        private final ArrayList<String> names = new ArrayList<String>();
+        private final ArrayList<Indicator.Factory> factories = new ArrayList<Indicator.Factory>();
+
+        private Builder() {
+        }
+
+        // adds an indicator as the next feature
+        Builder register(String name, Indicator.Factory factory) {
+            if (name == null || factory == null) {
+                throw new IllegalArgumentException("an indicator needs a name and a factory");
+            }
+            names.add(name);
+            factories.add(factory);
+            return this;
+        }
+
+        // adds the six standard indicators over a short and a long window
+        Builder standard(int shortDays, int longDays) {
+            register("SMA(SHORT) > SMA(LONG)", Indicators.smaCross(shortDays, longDays));
+            register("EMA(SHORT) > EMA(LONG)", Indicators.emaCross(shortDays, longDays));
+            register("EMA < Price", Indicators.priceAboveEma(longDays));
+            register("TBR <= 0", Indicators.breakOut(longDays, 0.0));
+            register("VOL <= 0.03", Indicators.volatility(longDays, 0.03));
+            register("MOM > 0", Indicators.momentum(longDays));
+            return this;
+        }
+
+        IndicatorRegistry build() {
+            if (names.isEmpty()) {
+                throw new IllegalArgumentException("need at least one indicator");
+            }
+            return new IndicatorRegistry(this);
+        }
+    }
+}
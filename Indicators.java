@@ -0,0 +1,404 @@
+/**
+ * The built-in indicators, as factories that can be registered in an
+ * IndicatorRegistry, and the rolling building blocks they are made of. The six
+ * standard indicators give exactly the features of IndicatorEngine, which
+ * shares one set of these blocks between the six standard features;
+ * indicator values are rounded to two decimal places before they are
+ * compared, as they always have been.
+ */
+final class Indicators {
+
+    private Indicators() {
+    }
+
+    // SMA(short) > SMA(long)
+    static Indicator.Factory smaCross(final int shortDays, final int longDays) {
+        checkWindows(shortDays, longDays);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Sma shortSma = new Sma(shortDays);
+                    private final Sma longSma = new Sma(longDays);
+
+                    public int warmUp() {
+                        return longDays;
+                    }
+
+                    public boolean feature(double price) {
+                        return round(shortSma.value()) > round(longSma.value());
+                    }
+
+                    public void push(double price) {
+                        shortSma.push(price);
+                        longSma.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // EMA(short) > EMA(long)
+    static Indicator.Factory emaCross(final int shortDays, final int longDays) {
+        checkWindows(shortDays, longDays);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Ema shortEma = new Ema(shortDays);
+                    private final Ema longEma = new Ema(longDays);
+
+                    public int warmUp() {
+                        return longDays;
+                    }
+
+                    public boolean feature(double price) {
+                        return round(shortEma.value()) > round(longEma.value());
+                    }
+
+                    public void push(double price) {
+                        shortEma.push(price);
+                        longEma.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // EMA(days) < price
+    static Indicator.Factory priceAboveEma(final int days) {
+        checkWindows(1, days);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Ema ema = new Ema(days);
+
+                    public int warmUp() {
+                        return days;
+                    }
+
+                    public boolean feature(double price) {
+                        return round(ema.value()) < price;
+                    }
+
+                    public void push(double price) {
+                        ema.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // trading break out (price - max) / max over the window <= threshold
+    static Indicator.Factory breakOut(final int days, final double threshold) {
+        checkWindows(1, days);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final RollingMax max = new RollingMax(days);
+
+                    public int warmUp() {
+                        return days;
+                    }
+
+                    public boolean feature(double price) {
+                        double m = max.value();
+                        return round((price - m) / m) <= threshold;
+                    }
+
+                    public void push(double price) {
+                        max.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // volatility, standard deviation / SMA over the window <= threshold
+    static Indicator.Factory volatility(final int days, final double threshold) {
+        checkWindows(1, days);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Sma sma = new Sma(days);
+                    private final Variance variance = new Variance(days);
+
+                    public int warmUp() {
+                        return days;
+                    }
+
+                    public boolean feature(double price) {
+                        return round(variance.standardDeviation() / round(sma.value())) <= threshold;
+                    }
+
+                    public void push(double price) {
+                        sma.push(price);
+                        variance.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // momentum, price - price days ago > 0
+    static Indicator.Factory momentum(final int days) {
+        checkWindows(1, days);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Sma window = new Sma(days);
+
+                    public int warmUp() {
+                        return days;
+                    }
+
+                    public boolean feature(double price) {
+                        return round(price - window.oldest()) > 0;
+                    }
+
+                    public void push(double price) {
+                        window.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // relative strength index of the last days price changes > threshold
+    static Indicator.Factory rsi(final int days, final double threshold) {
+        checkWindows(1, days);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Sma gains = new Sma(days);
+                    private final Sma losses = new Sma(days);
+                    private double last = Double.NaN;
+
+                    public int warmUp() {
+                        return days + 1;
+                    }
+
+                    public boolean feature(double price) {
+                        double loss = losses.value();
+                        double rsi = loss == 0.0 ? 100.0 : 100.0 - 100.0 / (1.0 + gains.value() / loss);
+                        return round(rsi) > threshold;
+                    }
+
+                    public void push(double price) {
+                        if (!Double.isNaN(last)) {
+                            double change = price - last;
+                            gains.push(Math.max(change, 0.0));
+                            losses.push(Math.max(-change, 0.0));
+                        }
+                        last = price;
+                    }
+                };
+            }
+        };
+    }
+
+    // price above the upper Bollinger band, SMA + width standard deviations
+    static Indicator.Factory bollinger(final int days, final double width) {
+        checkWindows(1, days);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Sma sma = new Sma(days);
+                    private final Variance variance = new Variance(days);
+
+                    public int warmUp() {
+                        return days;
+                    }
+
+                    public boolean feature(double price) {
+                        return price > round(sma.value() + width * variance.standardDeviation());
+                    }
+
+                    public void push(double price) {
+                        sma.push(price);
+                        variance.push(price);
+                    }
+                };
+            }
+        };
+    }
+
+    // MACD line, EMA(fast) - EMA(slow), > its signal line, the EMA(signal) of the MACD line
+    static Indicator.Factory macd(final int fastDays, final int slowDays, final int signalDays) {
+        checkWindows(fastDays, slowDays);
+        checkWindows(1, signalDays);
+        return new Indicator.Factory() {
+            public Indicator create() {
+                return new Indicator() {
+                    private final Ema fast = new Ema(fastDays);
+                    private final Ema slow = new Ema(slowDays);
+                    private final Ema signal = new Ema(signalDays);
+                    private long count = 0;
+
+                    public int warmUp() {
+                        return slowDays + signalDays - 1;
+                    }
+
+                    public boolean feature(double price) {
+                        return round(fast.value() - slow.value()) > round(signal.value());
+                    }
+
+                    public void push(double price) {
+                        fast.push(price);
+                        slow.push(price);
+                        count++;
+                        if (count >= slowDays) {
+                            signal.push(fast.value() - slow.value());
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    // function that checks the window lengths of an indicator
+    private static void checkWindows(int shortDays, int longDays) {
+        if (shortDays < 1 || shortDays > longDays) {
+            throw new IllegalArgumentException("short window must be between 1 and " + longDays + " days");
+        }
+    }
+
+    // function that rounds a value to two decimal places
+    static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    // rolling sum of the last days values, with the values kept in a ring
+    static final class Sma {
+        private final int days;
+        private final double[] ring;
+        private long count = 0;
+        private double sum = 0.0;
+
+        Sma(int days) {
+            this.days = days;
+            this.ring = new double[days];
+        }
+
+        void push(double value) {
+            int slot = (int) (count % days);
+            sum += value;
+            if (count >= days) {
+                sum -= ring[slot];
+            }
+            ring[slot] = value;
+            count++;
+        }
+
+        // mean of the last days values
+        double value() {
+            return sum / days;
+        }
+
+        // value pushed days values ago, once the window is full
+        double oldest() {
+            return ring[(int) (count % days)];
+        }
+    }
+
+    // recursive EMA, seeded with the SMA of the first days values
+    static final class Ema {
+        private final int days;
+        private final double multiplier;
+        private long count = 0;
+        private double sum = 0.0;
+        private double ema = 0.0;
+
+        Ema(int days) {
+            this.days = days;
+            this.multiplier = (double) 2 / (days + 1);
+        }
+
+        void push(double value) {
+            if (count < days) {
+                sum += value;
+            }
+            if (count + 1 == days) {
+                ema = sum / days;
+            } else if (count + 1 > days) {
+                ema = (value * multiplier) + (ema * (1 - multiplier));
+            }
+            count++;
+        }
+
+        double value() {
+            return ema;
+        }
+    }
+
+    // maximum of the last days values, kept in a monotonic deque
+    static final class RollingMax {
+        private final int days;
+        private final double[] dequeValue;
+        private final long[] dequeIndex;
+        private int dequeHead = 0;
+        private int dequeSize = 0;
+        private long count = 0;
+
+        RollingMax(int days) {
+            this.days = days;
+            this.dequeValue = new double[days];
+            this.dequeIndex = new long[days];
+        }
+
+        void push(double value) {
+            if (dequeSize > 0 && dequeIndex[dequeHead] <= count - days) {
+                dequeHead = (dequeHead + 1) % days;
+                dequeSize--;
+            }
+            while (dequeSize > 0 && dequeValue[(dequeHead + dequeSize - 1) % days] <= value) {
+                dequeSize--;
+            }
+            int tail = (dequeHead + dequeSize) % days;
+            dequeValue[tail] = value;
+            dequeIndex[tail] = count;
+            dequeSize++;
+            count++;
+        }
+
+        double value() {
+            return dequeValue[dequeHead];
+        }
+    }
+
+    // Welford mean and variance over the sliding window of the last days values
+    static final class Variance {
+        private final int days;
+        private final double[] ring;
+        private long count = 0;
+        private double mean = 0.0;
+        private double m2 = 0.0;
+
+        Variance(int days) {
+            this.days = days;
+            this.ring = new double[days];
+        }
+
+        void push(double value) {
+            int slot = (int) (count % days);
+            if (count >= days) {
+                double leaving = ring[slot];
+                double oldMean = mean;
+                mean += (value - leaving) / days;
+                m2 += (value - leaving) * (value - mean + leaving - oldMean);
+                if (m2 < 0.0) {
+                    m2 = 0.0;
+                }
+            } else {
+                double delta = value - mean;
+                mean += delta / (count + 1);
+                m2 += delta * (value - mean);
+            }
+            ring[slot] = value;
+            count++;
+        }
+
+        // population standard deviation of the window
+        double standardDeviation() {
+            return Math.sqrt(m2 / days);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Island model GA. Several populations evolve on their own threads with the
+ * usual tournament selection, crossover and mutation, each with its own Rng
+ * and its own fitness cache so the islands never wait on each other. Every
+ * migrationInterval generations the islands stop and copies of the best
+ * individuals of each island replace the worst individuals of its neighbours.
+ * Migration happens on the calling thread in island order, so a run with a
+ * given seed gives the same result for any number of threads.
+ *
+ * The time budget, plateau and target fitness of the config are checked
+ * between migration epochs, against the best individual of all the islands:
+ * a run stops at the end of the epoch in which one of them is reached.
+ *
+ * The listeners are told about every generation of every island, on the
+ * island's thread, so a listener is called from several threads at once.
+ */
+class IslandGA {
+
+    // which islands send their best individuals to which
+    enum Topology {
+        // island i sends to island i + 1, the last one to the first
+        RING,
+        // every island sends to every other island
+        FULLY_CONNECTED
+    }
+
+    final GA[] islands;
+    // telemetry: listeners given to every island when the run starts
+    final ArrayList<GenerationListener> listeners = new ArrayList<GenerationListener>();
+    private final GAConfig config;
+    private final int generations;
+    private final int migrationInterval;
+    private final int migrants;
+    private final Topology topology;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor that sets up the islands and evaluates their first population.
+     * Every island has the population size of the config, runs its maximum
+     * number of generations, and the islands share its number of threads. The
+     * islands are not checkpointed, so a config with a checkpoint file is
+     * refused
+     * 
+     * @param rows,              packed instances of the modelling class
+     * @param config,            parameters of every island
+     * @param islandCount,       number of islands
+     * @param migrationInterval, generations between migrations
+     * @param migrants,          individuals each island sends per migration
+     * @param topology,          which islands send to which
+     */
+    IslandGA(long[] rows, GAConfig config, int islandCount, int migrationInterval, int migrants,
+            Topology topology) {
+        if (islandCount < 1 || migrationInterval < 1 || migrants < 0) {
+            throw new IllegalArgumentException("need at least one island and a positive migration interval");
+        }
+        if (config.checkpointFile != null) {
+            throw new IllegalArgumentException("an island run cannot be checkpointed");
+        }
+        if (migrants * (islandCount - 1) >= config.populationSize) {
+            throw new IllegalArgumentException("too many migrants for a population of " + config.populationSize);
+        }
+        int threads = config.threads;
+        this.config = config;
+        this.generations = config.maxGenerations;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+        this.topology = topology;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, islandCount)));
+
+        long[][] split = GA.prepareData(rows, config.training);
+        // every island draws from its own stream, split off the run's generator
+        // in island order
+        Rng root = config.seeded ? new Rng(config.seed) : Rng.unseeded();
+        this.islands = new GA[islandCount];
+        for (int i = 0; i < islandCount; i++) {
+            islands[i] = new GA(config, split, GA.cachedEvaluator(config, split[0], null, 1), root.split());
+        }
+    }
+
+    /**
+     * function that runs every island until one of the stopping criteria is
+     * met, migrating on the interval, and prints the best rule found
+     * 
+     * @return why the run stopped
+     */
+    GA.StopReason run() {
+        long start = System.nanoTime();
+        for (GA island : islands) {
+            island.listeners.addAll(listeners);
+        }
+        GA.StopReason reason;
+        try {
+            int done = 0;
+            GA first = bestIsland();
+            double bestSoFar = first.fitness[first.best()];
+            int stalled = 0;
+            while ((reason = stopReason(done, System.nanoTime() - start, bestSoFar, stalled)) == null) {
+                final int steps = Math.min(migrationInterval, generations - done);
+                List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(islands.length);
+                for (final GA island : islands) {
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            for (int i = 0; i < steps; i++) {
+                                island.nextGeneration();
+                            }
+                            return null;
+                        }
+                    });
+                }
+                for (Future<Void> result : executor.invokeAll(tasks)) {
+                    result.get();
+                }
+                done += steps;
+                GA best = bestIsland();
+                double f = best.fitness[best.best()];
+                if (f > bestSoFar) {
+                    bestSoFar = f;
+                    stalled = 0;
+                } else {
+                    stalled += steps;
+                }
+                if (done < generations) {
+                    migrate();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("island run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("island failed", e.getCause());
+        } finally {
+            executor.shutdown();
+            for (GA island : islands) {
+                island.evaluator.close();
+            }
+        }
+        bestIsland().printBest();
+        return reason;
+    }
+
+    /**
+     * function that returns why the islands should stop, or null to run another
+     * epoch
+     * 
+     * @param done,         generations run by every island
+     * @param elapsedNanos, time since the run started
+     * @param bestSoFar,    best fitness on any island
+     * @param stalled,      generations since bestSoFar last improved
+     * @return the stop reason, or null
+     */
+    private GA.StopReason stopReason(int done, long elapsedNanos, double bestSoFar, int stalled) {
+        if (config.targetFitness > 0 && bestSoFar >= config.targetFitness) {
+            return GA.StopReason.TARGET_FITNESS;
+        }
+        if (done >= generations) {
+            return GA.StopReason.GENERATIONS;
+        }
+        if (config.timeBudgetMillis > 0 && elapsedNanos >= config.timeBudgetMillis * 1000000L) {
+            return GA.StopReason.TIME_BUDGET;
+        }
+        if (config.plateauGenerations > 0 && stalled >= config.plateauGenerations) {
+            return GA.StopReason.PLATEAU;
+        }
+        return null;
+    }
+
+    // function that returns the island holding the fittest individual
+    GA bestIsland() {
+        GA best = islands[0];
+        for (GA island : islands) {
+            if (island.fitness[island.best()] > best.fitness[best.best()]) {
+                best = island;
+            }
+        }
+        return best;
+    }
+
+    // function that copies the best individuals of every island over the worst
+    // individuals of the islands it sends to
+    private void migrate() {
+        int n = islands.length;
+        if (n == 1 || migrants == 0) {
+            return;
+        }
+        // pick every island's emigrants before any island is changed
+        long[][] rules = new long[n][migrants];
+        double[][] scores = new double[n][migrants];
+        for (int i = 0; i < n; i++) {
+            int[] best = ranked(islands[i], migrants, true);
+            for (int m = 0; m < migrants; m++) {
+                rules[i][m] = islands[i].population[best[m]];
+                scores[i][m] = islands[i].fitness[best[m]];
+            }
+        }
+        for (int target = 0; target < n; target++) {
+            int senders = topology == Topology.RING ? 1 : n - 1;
+            int[] worst = ranked(islands[target], senders * migrants, false);
+            int slot = 0;
+            for (int k = 1; k <= senders; k++) {
+                int source = topology == Topology.RING ? (target - 1 + n) % n : (target + k) % n;
+                for (int m = 0; m < migrants; m++) {
+                    islands[target].population[worst[slot]] = rules[source][m];
+                    islands[target].fitness[worst[slot]] = scores[source][m];
+                    slot++;
+                }
+            }
+        }
+    }
+
+    /**
+     * function that returns the indexes of the fittest or least fit individuals
+     * of an island, ties going to the lower index
+     * 
+     * @param island, the island
+     * @param count,  number of indexes wanted
+     * @param best,   true for the fittest, false for the least fit
+     * @return indexes, in order
+     */
+    private static int[] ranked(GA island, int count, boolean best) {
+        int[] chosen = new int[count];
+        boolean[] taken = new boolean[island.populationSize];
+        for (int c = 0; c < count; c++) {
+            int pick = -1;
+            for (int i = 0; i < island.populationSize; i++) {
+                if (taken[i]) {
+                    continue;
+                }
+                if (pick == -1 || (best ? island.fitness[i] > island.fitness[pick]
+                        : island.fitness[i] < island.fitness[pick])) {
+                    pick = i;
+                }
+            }
+            taken[pick] = true;
+            chosen[c] = pick;
+        }
+        return chosen;
+    }
+}
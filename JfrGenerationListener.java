@@ -0,0 +1,71 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Listener that commits every generation as a JFR event, so a flight
+ * recording of a run shows the GA next to GC and JIT activity.
+ */
+class JfrGenerationListener implements GenerationListener {
+
+    @Name("ga.Generation")
+    @Label("GA Generation")
+    @Category("Genetic Algorithm")
+    @Description("Telemetry of one generation of the GA")
+    static class GenerationEvent extends Event {
+        @Label("Generation")
+        int generation;
+
+        @Label("Evaluate Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long evaluateNanos;
+
+        @Label("Selection Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long selectionNanos;
+
+        @Label("Variation Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long variationNanos;
+
+        @Label("Evaluations Per Second")
+        double evaluationsPerSecond;
+
+        @Label("Cache Hit Rate")
+        double cacheHitRate;
+
+        @Label("Best Fitness")
+        double bestFitness;
+
+        @Label("Mean Fitness")
+        double meanFitness;
+
+        @Label("Fitness Standard Deviation")
+        double fitnessStdDev;
+
+        @Label("Allocated Bytes")
+        long allocatedBytes;
+    }
+
+    @Override
+    public void generation(GenerationStats s) {
+        GenerationEvent event = new GenerationEvent();
+        if (!event.isEnabled()) {
+            return;
+        }
+        event.generation = s.generation;
+        event.evaluateNanos = s.evaluateNanos;
+        event.selectionNanos = s.selectionNanos;
+        event.variationNanos = s.variationNanos;
+        event.evaluationsPerSecond = s.evaluationsPerSecond();
+        event.cacheHitRate = s.cacheHitRate();
+        event.bestFitness = s.bestFitness;
+        event.meanFitness = s.meanFitness;
+        event.fitnessStdDev = s.fitnessStdDev;
+        event.allocatedBytes = s.allocatedBytes;
+        event.commit();
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Streaming prediction. Prices arrive one at a time; every price updates the
+ * rolling state of the indicator engine in constant time, and the features of
+ * the new bar are packed into one word and checked against the learned rules
+ * with the same covers() as the GA. The rules are a decision list, as in
+ * RuleSetLearner: the first rule that covers the bar decides the signal, and
+ * the default label decides it when none does. Nothing is allocated per price.
+ *
+ * The main method is a replay harness: it learns rules from 'PriceData.csv',
+ * feeds the prices back through a predictor one at a time and reports the
+ * latency of every decision.
+ *
+ * Usage: java LivePredictor [rules] [passes]
+ */
+class LivePredictor {
+
+    // signals returned for a price
+    static final int NO = 0;
+    static final int YES = 1;
+    static final int NO_SIGNAL = -1;
+
+    private final FeatureEngine engine;
+    private final long[] featureWords;
+    private final int labelBit;
+    private final long pairMask;
+    private final long[] rules;
+    private final int defaultLabel;
+
+    /**
+     * Constructor for rules over the standard indicators
+     *
+     * @param rules,        packed rules, checked in order
+     * @param defaultLabel, signal when no rule covers the bar: NO, YES or
+     *                      NO_SIGNAL
+     */
+    LivePredictor(long[] rules, int defaultLabel) {
+        this(IndicatorRegistry.standard, rules, defaultLabel);
+    }
+
+    /**
+     * @param registry,     the indicators the rules were learned over
+     * @param rules,        packed rules, checked in order
+     * @param defaultLabel, signal when no rule covers the bar: NO, YES or
+     *                      NO_SIGNAL
+     */
+    LivePredictor(IndicatorRegistry registry, long[] rules, int defaultLabel) {
+        this.engine = registry.engine();
+        this.featureWords = new long[FeatureMatrix.words(registry.features())];
+        this.labelBit = registry.labelBit();
+        this.pairMask = registry.pairMask();
+        this.rules = rules.clone();
+        this.defaultLabel = defaultLabel;
+    }
+
+    /**
+     * function that takes the next price and returns the signal for its bar
+     *
+     * @param price, the new price
+     * @return YES, NO, or NO_SIGNAL while the windows are filling or when no rule
+     *         covers the bar and there is no default
+     */
+    int onPrice(double price) {
+        if (!engine.update(price, featureWords)) {
+            return NO_SIGNAL;
+        }
+        long instance = Rules.packFeatures(featureWords[0], engine.features(), 0);
+        for (int i = 0; i < rules.length; i++) {
+            if (Rules.covers(rules[i], instance, pairMask)) {
+                return Rules.bit(rules[i], labelBit);
+            }
+        }
+        return defaultLabel;
+    }
+
+    // number of prices taken so far
+    long count() {
+        return engine.count();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxRules = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        GAConfig config = Modelling.gaConfig(1).toBuilder().checkpoint(null, 1).build();
+        Modelling model = new Modelling(new File("PriceData.csv"), new File("PriceData.features"));
+
+        long[] rules;
+        int defaultLabel;
+        if (maxRules > 1) {
+            RuleSetLearner learner = new RuleSetLearner(model.getRows(), config, maxRules, 0.95);
+            learner.run();
+            rules = learner.rules;
+            defaultLabel = learner.defaultLabel;
+        } else {
+            GA ga = new GA(config, model.getRows());
+            ga.run();
+            ga.printBest();
+            rules = new long[] { ga.population[ga.best()] };
+            defaultLabel = NO_SIGNAL;
+            ga.close();
+        }
+        replay(PriceLoader.load(new File("PriceData.csv")), config.registry, rules, defaultLabel, passes);
+    }
+
+    /**
+     * function that feeds a series through a new predictor several times, timing
+     * every price, and prints the latency percentiles, allocation and signal
+     * counts of the last pass. The earlier passes warm up the JIT
+     *
+     * @param series,       the prices to replay
+     * @param registry,     the indicators the rules were learned over
+     * @param rules,        packed rules
+     * @param defaultLabel, signal when no rule covers the bar
+     * @param passes,       number of replays
+     */
+    static void replay(PriceSeries series, IndicatorRegistry registry, long[] rules, int defaultLabel, int passes) {
+        int ticks = series.size();
+        if (ticks == 0) {
+            return;
+        }
+        long[] latencies = new long[ticks];
+        int[] signals = new int[ticks];
+        long allocated = 0L;
+        long total = 0L;
+        for (int pass = 0; pass < Math.max(1, passes); pass++) {
+            LivePredictor predictor = new LivePredictor(registry, rules, defaultLabel);
+            long before = GenerationStats.allocatedBytes();
+            for (int t = 0; t < ticks; t++) {
+                long start = System.nanoTime();
+                signals[t] = predictor.onPrice(series.price(t));
+                latencies[t] = System.nanoTime() - start;
+            }
+            allocated = GenerationStats.allocatedBytes() - before;
+        }
+
+        int yes = 0;
+        int no = 0;
+        int correct = 0;
+        int known = 0;
+        for (int t = 0; t < ticks; t++) {
+            total += latencies[t];
+            if (signals[t] == NO_SIGNAL) {
+                continue;
+            }
+            if (signals[t] == YES) {
+                yes++;
+            } else {
+                no++;
+            }
+            if (series.increase(t) != PriceLoader.unknown) {
+                known++;
+                if (signals[t] == series.increase(t)) {
+                    correct++;
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        System.out.println(String.format(Locale.ROOT, "Ticks: %d, YES: %d, NO: %d, no signal: %d", ticks, yes, no,
+                ticks - yes - no));
+        if (known > 0) {
+            System.out.println("Signal accuracy: " + (double) correct / known);
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "Latency (ns): mean %.1f, p50 %d, p99 %d, p99.9 %d, max %d", (double) total / ticks,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[ticks - 1]));
+        if (allocated >= 0) {
+            System.out.println(String.format(Locale.ROOT, "Allocated per tick (bytes): %.2f",
+                    (double) allocated / ticks));
+        }
+    }
+
+    // function that returns a percentile of sorted values
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
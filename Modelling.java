@@ -1,603 +1,291 @@
-import java.io.*;
-import java.util.Scanner;
-import java.util.ArrayList;
-import java.lang.Math;
-import java.util.Random;
-import java.util.Iterator;
-
-public class Modelling {
-
-    // Initialise population size
-    int populationSize = 100;
-
-    // Arraylists
-    ArrayList<String[]> priceData = new ArrayList<String[]>();
-    ArrayList<int[]> inputData = new ArrayList<int[]>();
-
-    public Modelling() {
-        populatePriceData();
-        createInputData();
-    }
-
-    // returns the data from the model
-    public ArrayList<int[]> getInputData() {
-        return this.inputData;
-    }
-
-    // function that creates the input data for the GA
-    private void createInputData() {
-        int numDays = 50;
-        int secondNumDays = 14;
-        int size = priceData.size();
-        for (int i = (2 * numDays); i <= size - 14; i++) {
-            int[] data = new int[7];
-            if (smaCalculation(secondNumDays, i) > smaCalculation(numDays, i)) {
-                data[0] = 1;
-            } else {
-                data[0] = 0;
-            }
-            if (emaCalculation(secondNumDays, i) > emaCalculation(numDays, i)) {
-                data[1] = 1;
-            } else {
-                data[1] = 0;
-            }
-            if (emaCalculation(numDays, i) < getPrice(i)) {
-                data[2] = 1;
-            } else {
-                data[2] = 0;
-            }
-            if (tbrCalculation(numDays, i) <= 0.00) {
-                data[3] = 1;
-            } else {
-                data[3] = 0;
-            }
-            if (volCalculation(numDays, i) <= 0.03) {
-                data[4] = 1;
-            } else {
-                data[4] = 0;
-            }
-            if (momCalculation(numDays, i) > 0) {
-                data[5] = 1;
-            } else {
-                data[5] = 0;
-            }
-            data[6] = getIncrease(i);
-            inputData.add(data);
-        }
-    }
-
-    /**
-     * function that returns the price for a given day
-     * 
-     * @param day of price
-     * @return price
-     */
-    private double getPrice(int day) {
-        int d = day - 1;
-        String[] price = priceData.get(d);
-        return Double.parseDouble(price[0]);
-    }
-
-    /**
-     * function that gets weather the price will increase/decrease in 14 days for a
-     * given day
-     * 
-     * @param day
-     * @return 0/1 for decrease/increase
-     */
-    private int getIncrease(int day) {
-        int d = day - 1;
-        String[] increase = priceData.get(d);
-        return Integer.parseInt(increase[1].replaceAll(" ", ""));
-    }
-
-    /**
-     * function that calculates the SMA value, given the number of days and the
-     * start day
-     * 
-     * @param numDays  number of days
-     * @param startDay the start day
-     * @return smaCalculation
-     */
-    private double smaCalculation(int numDays, int startDay) {
-        try {
-            // System.out.println(startDay);
-            double sum = 0.0;
-            int day = startDay - 2;
-            for (int i = 0; i < numDays; i++) {
-                String[] line = priceData.get(day);
-                sum += Double.parseDouble(line[0]);
-                day--;
-            }
-            return Math.round((sum / numDays) * 100.0) / 100.0;
-        } catch (IndexOutOfBoundsException e) {
-            return 0.0;
-        }
-    }
-
-    /**
-     * function that calculates the EMA value, given the number of days and the
-     * start day
-     * 
-     * @param numDays  number of days
-     * @param startDay the start day
-     * @return emaCalculation
-     */
-    private double emaCalculation(int numDays, int startDay) {
-        int day = startDay - (numDays + 1);
-        int counter = 1;
-        double sum = 0.0;
-        double multiplier = (double) 2 / (numDays + 1);
-        while (counter <= numDays) {
-            String[] line = priceData.get(day);
-            double dayPrice = Double.parseDouble(line[0]);
-            if (counter == 1) {
-                sum = smaCalculation(numDays, day + 1);
-            } else {
-                sum = (dayPrice * multiplier) + (sum * (1 - multiplier));
-            }
-            day++;
-            counter++;
-        }
-        return Math.round(sum * 100.0) / 100.0;
-    }
-
-    /**
-     * function that calculates the TBR value, given the number of days and the
-     * start day
-     * 
-     * @param numDays  number of days
-     * @param startDay the start day
-     * @return tbrCalculation
-     */
-    private double tbrCalculation(int numDays, int startDay) {
-        double max = 0.0;
-        String[] startLine = priceData.get(startDay - 1);
-        double startPrice = Double.parseDouble(startLine[0]);
-        for (int i = startDay - 2; i > (startDay - 2) - numDays; i--) {
-            String[] line = priceData.get(i);
-            if (Double.parseDouble(line[0]) > max) {
-                max = Double.parseDouble(line[0]);
-            }
-        }
-        return Math.round(((startPrice - max) / max) * 100.0) / 100.0;
-    }
-
-    /**
-     * function that calculates the VOL value, given the number of days and the
-     * start day
-     * 
-     * @param numDays  number of days
-     * @param startDay the start day
-     * @return volCalculation
-     */
-    private double volCalculation(int numDays, int startDay) {
-        double sum = 0.0;
-        for (int i = startDay - 2; i > (startDay - 2) - numDays; i--) {
-            String[] line = priceData.get(i);
-            sum += Double.parseDouble(line[0]);
-        }
-        double mean = sum / numDays;
-        double standardDeviation = 0.0;
-        for (int i = (startDay - 2) - numDays; i < startDay - 1; i++) {
-            String[] line = priceData.get(i);
-            standardDeviation += (Double.parseDouble(line[0]) - mean) * (Double.parseDouble(line[0]) - mean);
-        }
-        standardDeviation = Math.sqrt(standardDeviation / numDays - 1);
-
-        return Math.round((standardDeviation / smaCalculation(numDays, startDay)) * 100.0) / 100.0;
-    }
-
-    /**
-     * function that calculates the MOM value, given the number of days and the
-     * start day
-     * 
-     * @param numDays  number of days
-     * @param startDay the start day
-     * @return momCalculation
-     */
-    private double momCalculation(int numDays, int startDay) {
-        String[] startDayLine = priceData.get(startDay - 1);
-        String[] endDayLine = priceData.get(startDay - (1 + numDays));
-
-        return Math.round((Double.parseDouble(startDayLine[0]) - Double.parseDouble(endDayLine[0])) * 100.0) / 100.0;
-    }
-
-    // function that reads the CSV file with the price data and populates the
-    private void populatePriceData() {
-        try {
-            Scanner sc = new Scanner(new File("PriceData.csv"));
-            while (sc.hasNextLine()) {
-                String[] line = sc.nextLine().split(",");
-                priceData.add(line);
-            }
-        } catch (FileNotFoundException e) {
-            System.out.println("File not found");
-            e.printStackTrace();
-        }
-    }
-
-    // Main that runs the modelling class and uses the output as a parameter for the
-    // GA class
-    public static void main(String[] args) {
-        Modelling model = new Modelling();
-        GA geneticAlgoritm = new GA(model.getInputData());
-    }
-}
-
-class GA {
-
-    // initialising the datasets for both training and testing data
-    ArrayList<int[]> data = new ArrayList<int[]>();
-    ArrayList<int[]> trainingData = new ArrayList<int[]>();
-    ArrayList<int[]> testingData = new ArrayList<int[]>();
-
-    // static final variables needed
-    private static final int bits = 13;
-    private static final int populationSize = 100;
-    private static final int maxGenerations = 10;
-    private static final double crossoverProbability = 0.8;
-    private static final double mutationProbability = 0.2;
-    private static final int tournamentSize = 7;
-    private static final double training = 0.7;
-    // random variable
-    Random random = new Random();
-
-    // 2D array to store the population
-    int[][] population = new int[populationSize][bits];
-
-    // array to store the fitness
-    Double[] fitness = new Double[populationSize];
-
-    // Constructor that runs the GA and prints the best rule
-    public GA(ArrayList<int[]> inputData) {
-        transformInputData(inputData);
-        int trainingSize = (int) Math.round(data.size() * training);
-        splitData(trainingSize - 1);
-        generatePopulation();
-        evaluate();
-        for (int i = 0; i < maxGenerations; i++) {
-            int[][] tempPopulation = new int[populationSize][bits];
-            int currentIndividual = 0;
-            while (currentIndividual < populationSize) {
-                double randomProb = random.nextDouble();
-                if (randomProb <= mutationProbability || (populationSize - currentIndividual) == 1) {
-                    int parent = tournamentSelection();
-
-                    int[] offspring = twoPointMutaiton(parent);
-
-                    tempPopulation[currentIndividual] = offspring;
-                    currentIndividual++;
-                } else {
-                    int p1 = tournamentSelection();
-                    int p2 = tournamentSelection();
-
-                    int[][] offspring = twoPointCrossover(p1, p2);
-
-                    tempPopulation[currentIndividual] = offspring[0];
-                    currentIndividual++;
-                    tempPopulation[currentIndividual] = offspring[1];
-                    currentIndividual++;
-                }
-            }
-            population = tempPopulation;
-            evaluate();
-        }
-        double f = 0.0;
-        int index = 0;
-        for (int i = 0; i < populationSize; i++) {
-            if (fitness[i] > f) {
-                f = fitness[i];
-                index = i;
-            }
-        }
-        System.out.println("Best Individual: " + index);
-        System.out.println("Fitness: " + fitness[index]);
-        System.out.print("[");
-        for (int i = 0; i < bits; i++) {
-            System.out.print(population[index][i]);
-        }
-        System.out.println("]");
-        System.out.println(toString(population[index]));
-        accuracy(population[index]);
-    }
-
-    /**
-     * function that splits the inputted data from the modeelling class into
-     * training and testing data
-     * 
-     * @param trainingSize, how many inputs are used for training
-     */
-    private void splitData(int trainingSize) {
-        int counter = 0;
-        Iterator<int[]> itr = data.iterator();
-        while (itr.hasNext()) {
-            if (counter <= trainingSize) {
-                int[] line = itr.next();
-                trainingData.add(line);
-                counter++;
-            } else {
-                int[] line = itr.next();
-                testingData.add(line);
-            }
-            itr.remove();
-        }
-    }
-
-    /**
-     * function that transforms the inputted data from the model into the right
-     * representation for the individuals
-     * 
-     * @param inputtedData, and arraylist of all the inputted data
-     */
-    private void transformInputData(ArrayList<int[]> inputtedData) {
-        for (int i = 0; i < inputtedData.size(); i++) {
-            int[] line = inputtedData.get(i);
-            int[] newLine = new int[inputtedData.size()];
-            int counter = 0;
-            for (int j = 0; j < 7; j++) {
-                if (line[j] == 0 && j != 6) {
-                    newLine[counter] = 0;
-                    newLine[counter + 1] = 1;
-                    counter += 2;
-                } else if (line[j] == 1 && j != 6) {
-                    newLine[counter] = 1;
-                    newLine[counter + 1] = 0;
-                    counter += 2;
-                } else {
-                    newLine[counter] = line[j];
-                }
-            }
-            data.add(newLine);
-        }
-    }
-
-    /**
-     * function that performs tournament selection and returns the winner
-     * 
-     * @return individual selected
-     */
-    private int tournamentSelection() {
-        int[] tournament = new int[tournamentSize];
-        boolean[] selected = new boolean[populationSize];
-
-        for (int i = 0; i < tournamentSize; i++) {
-            int chosen = -1;
-            while (chosen == -1) {
-                chosen = random.nextInt(populationSize);
-                if (!selected[chosen]) {
-                    tournament[i] = chosen;
-                    selected[chosen] = true;
-                } else {
-                    chosen = -1;
-                }
-            }
-        }
-        int winner = 0;
-        for (int i = 1; i < tournamentSize; i++) {
-            if (fitness[tournament[winner]] < fitness[tournament[i]]) {
-                winner = i;
-            }
-        }
-        return tournament[winner];
-    }
-
-    // function that calculates and stores the fitness of each individual in the
-    // population
-    private void evaluate() {
-        for (int i = 0; i < populationSize; i++) {
-            int TP = 0;
-            int FP = 0;
-            int FN = 0;
-            int TN = 0;
-
-            int target = population[i][bits - 1];
-
-            for (int j = 0; j < trainingData.size(); j++) {
-                int[] line = trainingData.get(j);
-                boolean equal = false;
-                if (target == line[bits - 1]) {
-                    equal = true;
-                }
-                if (covers(population[i], line)) {
-                    if (equal) {
-                        TP++;
-                    } else {
-                        FP++;
-                    }
-                } else {
-                    if (equal) {
-                        FN++;
-                    } else {
-                        TN++;
-                    }
-                }
-            }
-
-            double sensitivity = TP / (TP + (double) FN);
-            double specificity = TN / (FP + (double) TN);
-
-            fitness[i] = sensitivity * specificity;
-
-            if (Double.isNaN(fitness[i])) {
-                fitness[i] = 0.0;
-            }
-        }
-    }
-
-    /**
-     * function that checks if a rule covers an instance, returns true or false
-     * 
-     * @param rule,     an array of 0's and 1's for the rule
-     * @param instance, an array of '0's and 1's for the instance
-     * @return boolean, true if covers, false otherwise
-     */
-    private boolean covers(int[] rule, int[] instance) {
-        int p = 0;
-        boolean endReturn = true;
-        for (int i = 0; i < 6; i++) {
-            int length = 2;
-            boolean match = false;
-            int counter = 0;
-            for (int j = 0; j < length; j++) {
-                if (rule[p + j] == 1) {
-                    counter++;
-                    if (instance[p + j] == 1) {
-                        match = true;
-                    }
-                }
-            }
-            if ((counter != length) && !match) {
-                endReturn = false;
-            }
-            p += length;
-        }
-        return endReturn;
-    }
-
-    /**
-     * function that performs a two point mutation, given a index for the parent
-     * 
-     * @param parent, index of the parent
-     * @return offspring, an array representing the offspring
-     */
-    private int[] twoPointMutaiton(int parent) {
-        int[] offspring = new int[bits];
-        int point1 = random.nextInt(bits);
-        int point2 = random.nextInt(bits);
-        for (int i = 0; i < bits; i++) {
-            if (i == point1 || i == point2) {
-                if (population[parent][i] == 0) {
-                    offspring[i] = 1;
-                } else {
-                    offspring[i] = 0;
-                }
-            } else {
-                offspring[i] = population[parent][i];
-            }
-        }
-        return offspring;
-    }
-
-    /**
-     * function that performs a crossover, given two indexes for the parents
-     * 
-     * @param p1, index of first parent
-     * @param p2, index of second parent
-     * @return offspring, 2d Array representing the offsprings
-     */
-    private int[][] twoPointCrossover(int p1, int p2) {
-        int[][] offspring = new int[2][bits];
-        int startPoint = random.nextInt(bits / 2);
-        int endPoint = random.nextInt(bits);
-        while (endPoint <= startPoint) {
-            endPoint = random.nextInt(bits);
-        }
-        boolean startFound = false;
-        boolean endFound = false;
-        for (int i = 0; i < bits; i++) {
-            if (i == endPoint) {
-                endFound = true;
-            }
-            if (i == startPoint || (startFound == true && endFound == false)) {
-                startFound = true;
-                offspring[0][i] = population[p2][i];
-                offspring[1][i] = population[p1][i];
-            } else {
-                offspring[0][i] = population[p1][i];
-                offspring[1][i] = population[p2][i];
-            }
-        }
-        return offspring;
-    }
-
-    // function that generates the intiial population
-    private void generatePopulation() {
-        for (int i = 0; i < populationSize; i++) {
-            population[i] = new int[bits];
-            for (int j = 0; j < bits; j++) {
-                population[i][j] = random.nextInt(2);
-            }
-        }
-    }
-
-    /**
-     * function that calculates and displays how many instances the rule covers on
-     * the test data, and the accuracy of that rule in terms of the prediction
-     * 
-     * @param rule, array of ints representing the rule
-     */
-    private void accuracy(int[] rule) {
-        int instances = 0;
-        int correctPredictions = 0;
-        for (int i = 0; i < testingData.size(); i++) {
-            int[] line = testingData.get(i);
-            if (covers(rule, line)) {
-                instances++;
-                if (line[12] == rule[12]) {
-                    correctPredictions++;
-                }
-            }
-        }
-        double acc = (double) correctPredictions / instances;
-        System.out.println("Instances: " + instances);
-        System.out.println("Accuracy: " + acc);
-    }
-
-    /**
-     * function that converts the rule to a string
-     * 
-     * @param rule, array of ints representing the rule
-     * @return rule as a string
-     */
-    private String toString(int[] rule) {
-        String line = "IF ";
-        for (int i = 0; i < 12; i += 2) {
-            if (rule[i] != rule[i + 1]) {
-                if (i == 0) {
-                    if (rule[i] == 1) {
-                        line += "{SMA(SHORT) > SMA(LONG) = TRUE} ";
-                    } else if (rule[i] == 0) {
-                        line += "{SMA(SHORT) > SMA(LONG) = FALSE} ";
-                    }
-                } else if (i == 2) {
-                    if (rule[i] == 1) {
-                        line += "{EMA(SHORT) > EMA(LONG) = TRUE} ";
-                    } else if (rule[i] == 0) {
-                        line += "{EMA(SHORT) > EMA(LONG) = FALSE} ";
-                    }
-                } else if (i == 4) {
-                    if (rule[i] == 1) {
-                        line += "{EMA < Price = TRUE} ";
-                    } else if (rule[i] == 0) {
-                        line += "{EMA < Price = FALSE} ";
-                    }
-                } else if (i == 6) {
-                    if (rule[i] == 1) {
-                        line += "{TBR <= 0 = TRUE} ";
-                    } else if (rule[i] == 0) {
-                        line += "{TBR <= 0 = FALSE} ";
-                    }
-                } else if (i == 8) {
-                    if (rule[i] == 1) {
-                        line += "{VOL <= 0.03 = TRUE} ";
-                    } else if (rule[i] == 0) {
-                        line += "{VOL <= 0.03 = FALSE} ";
-                    }
-                } else if (i == 10) {
-                    if (rule[i] == 1) {
-                        line += "{MOM > 0 = TRUE} ";
-                    } else if (rule[i] == 0) {
-                        line += "{MOM > 0 = FALSE} ";
-                    }
-                }
-            }
-        }
-        if (rule[12] == 1) {
-            line += "THEN YES";
-        } else {
-            line += "THEN NO";
-        }
-        return line;
-    }
-}
\ No newline at end of file
+import java.io.*;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Modelling {
+
+    // Initialise population size
+    int populationSize = 100;
+
+    // indicator windows
+    static final int numDays = 50;
+    static final int secondNumDays = 14;
+
+    // price data in primitive columns, the features built from it, and its rows
+    // packed for the GA
+    PriceSeries priceData = new PriceSeries();
+    FeatureMatrix features;
+    long[] rows = new long[0];
+
+    public Modelling() {
+        this(new File("PriceData.csv"), (File) null);
+    }
+
+    /**
+     * Constructor that models a price file. If a feature file is given, the
+     * features stored in it are used when they were built from the same price
+     * file, and otherwise they are built and stored there for the next run
+     * 
+     * @param priceFile,   CSV file of price,increase lines
+     * @param featureFile, binary feature file, or null to always build
+     */
+    public Modelling(File priceFile, File featureFile) {
+        long checksum = 0L;
+        if (featureFile != null) {
+            try {
+                checksum = FeatureStore.checksum(priceFile);
+                features = FeatureStore.read(featureFile, secondNumDays, numDays, checksum);
+            } catch (IOException e) {
+                System.out.println("Could not read stored features, rebuilding them");
+                featureFile = null;
+            }
+        }
+        if (features == null) {
+            boolean loaded = populatePriceData(priceFile);
+            createInputData();
+            if (loaded && featureFile != null) {
+                try {
+                    FeatureStore.write(featureFile, features, secondNumDays, numDays, checksum);
+                } catch (IOException e) {
+                    System.out.println("Could not store features");
+                    e.printStackTrace();
+                }
+            }
+        }
+        rows = features.packRows(0, features.rows);
+    }
+
+    /**
+     * Constructor that models a price file with the indicators of a registry;
+     * the features are always built, as the feature file only holds the
+     * standard ones. The GA is then run with GAConfig.builder().registry(registry)
+     * and, like it, the registry may hold at most 31 indicators
+     * 
+     * @param priceFile, CSV file of price,increase lines
+     * @param registry,  the indicators
+     */
+    public Modelling(File priceFile, IndicatorRegistry registry) {
+        if (!registry.fitsInWord()) {
+            throw new IllegalArgumentException("the GA needs a registry of 1 to 31 indicators");
+        }
+        populatePriceData(priceFile);
+        features = createInputData(priceData, registry);
+        rows = features.packRows(0, features.rows);
+    }
+
+    // returns the rows from the model, packed for the GA, in time order
+    public long[] getRows() {
+        return this.rows;
+    }
+
+    // returns the features and labels from the model by column
+    public FeatureMatrix getFeatures() {
+        return this.features;
+    }
+
+    // function that creates the input data for the GA in one pass over the prices
+    private void createInputData() {
+        features = createInputData(priceData);
+    }
+
+    /**
+     * function that builds the features and labels of a price series in one pass
+     * over the prices
+     * 
+     * @param priceData, the price series
+     * @return the features and labels, one row per day from 2 * numDays up to
+     *         14 days before the end
+     */
+    static FeatureMatrix createInputData(PriceSeries priceData) {
+        int size = priceData.size();
+        double[] prices = priceData.prices;
+        // days counted from 1
+        int firstDay = 2 * numDays;
+        int lastDay = size - 14;
+        FeatureMatrix features = new FeatureMatrix(Math.max(0, lastDay - firstDay + 1), IndicatorEngine.features);
+        IndicatorEngine engine = new IndicatorEngine(secondNumDays, numDays);
+        // day i (counting from 1) is at index i - 1
+        for (int i = 1; i <= lastDay; i++) {
+            int bits = engine.update(prices[i - 1]);
+            if (i >= firstDay) {
+                features.set(i - firstDay, bits, priceData.increase(i - 1));
+            }
+        }
+        return features;
+    }
+
+    /**
+     * function that builds the features and labels of a price series from the
+     * indicators of a registry, over the same days as createInputData(priceData)
+     * 
+     * @param priceData, the price series
+     * @param registry,  the indicators, feature f from indicator f
+     * @return the features and labels, one row per day from 2 * numDays up to
+     *         14 days before the end
+     */
+    static FeatureMatrix createInputData(PriceSeries priceData, IndicatorRegistry registry) {
+        int size = priceData.size();
+        int firstDay = 2 * numDays;
+        int lastDay = size - 14;
+        FeatureMatrix features = new FeatureMatrix(Math.max(0, lastDay - firstDay + 1), registry.features());
+        FeatureEngine engine = registry.engine();
+        long[] bits = new long[FeatureMatrix.words(registry.features())];
+        for (int i = 1; i <= lastDay; i++) {
+            boolean ready = engine.update(priceData.price(i - 1), bits);
+            if (i >= firstDay) {
+                if (!ready) {
+                    throw new IllegalArgumentException(
+                            "indicators need more than " + (firstDay - 1) + " days before the first row");
+                }
+                features.set(i - firstDay, bits, priceData.increase(i - 1));
+            }
+        }
+        return features;
+    }
+
+    /**
+     * function that reads the CSV file with the price data and populates the
+     * price columns
+     * 
+     * @param priceFile, CSV file of price,increase lines
+     * @return true if the file was read
+     */
+    private boolean populatePriceData(File priceFile) {
+        try {
+            priceData = PriceLoader.load(priceFile);
+            return true;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            System.out.println("File not found");
+            e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("Could not read price data");
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    // Main that runs the modelling class and uses the output as a parameter for the
+    // GA class. Optional arguments: number of threads, number of islands, most
+    // rules in a rule list
+    public static void main(String[] args) {
+        Modelling model = new Modelling(new File("PriceData.csv"), new File("PriceData.features"));
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 0) {
+            threads = Integer.parseInt(args[0]);
+        }
+        int islands = 1;
+        if (args.length > 1) {
+            islands = Integer.parseInt(args[1]);
+        }
+        int maxRules = 0;
+        if (args.length > 2) {
+            maxRules = Integer.parseInt(args[2]);
+        }
+        GAConfig config = gaConfig(threads);
+        if (config.checkpointFile != null && (maxRules > 0 || islands > 1)) {
+            System.out.println("ga.checkpoint is only supported by a single GA, not by islands or rule lists");
+            return;
+        }
+        if (maxRules > 0) {
+            RuleSetLearner learner = new RuleSetLearner(model.getRows(), config, maxRules, 0.95);
+            learner.listeners.addAll(generationListeners());
+            learner.run();
+        } else if (islands > 1) {
+            IslandGA islandModel = new IslandGA(model.getRows(), config, islands, 2, 2,
+                    IslandGA.Topology.RING);
+            islandModel.listeners.addAll(generationListeners());
+            GA.StopReason reason = islandModel.run();
+            if (reason != GA.StopReason.GENERATIONS) {
+                System.out.println("Stopped early: " + reason);
+            }
+        } else {
+            long[][] split = GA.prepareData(model.getRows(), config.training);
+            GA geneticAlgoritm = null;
+            if (config.checkpointFile != null && config.checkpointFile.isFile()) {
+                try {
+                    geneticAlgoritm = new GA(config, split, null, config.checkpointFile);
+                    System.out.println("Resumed from generation " + geneticAlgoritm.generation);
+                } catch (IOException e) {
+                    System.out.println("Could not resume from " + config.checkpointFile + ", starting again");
+                }
+            }
+            if (geneticAlgoritm == null) {
+                geneticAlgoritm = new GA(config, split, null, config.seeded ? new Rng(config.seed) : Rng.unseeded());
+            }
+            geneticAlgoritm.listeners.addAll(generationListeners());
+            GA.StopReason reason = geneticAlgoritm.run();
+            if (reason != GA.StopReason.GENERATIONS) {
+                System.out.println("Stopped early: " + reason + " after " + geneticAlgoritm.generation
+                        + " generations");
+            }
+            geneticAlgoritm.printBest();
+            geneticAlgoritm.close();
+        }
+    }
+
+    /**
+     * function that builds the GA parameters, taking any of these system
+     * properties over the defaults: ga.populationSize, ga.generations,
+     * ga.tournamentSize, ga.seed, ga.timeBudget (seconds), ga.plateau
+     * (generations), ga.target (fitness) and ga.checkpoint (file, written every
+     * ga.checkpointInterval generations and resumed from when it exists)
+     * 
+     * @param threads, number of threads used to evaluate the population
+     * @return the parameters
+     */
+    static GAConfig gaConfig(int threads) {
+        GAConfig.Builder builder = GAConfig.builder().threads(threads);
+        if (System.getProperty("ga.populationSize") != null) {
+            builder.populationSize(Integer.getInteger("ga.populationSize"));
+        }
+        if (System.getProperty("ga.generations") != null) {
+            builder.maxGenerations(Integer.getInteger("ga.generations"));
+        }
+        if (System.getProperty("ga.tournamentSize") != null) {
+            builder.tournamentSize(Integer.getInteger("ga.tournamentSize"));
+        }
+        if (System.getProperty("ga.seed") != null) {
+            builder.seed(Long.getLong("ga.seed"));
+        }
+        if (System.getProperty("ga.timeBudget") != null) {
+            builder.timeBudgetMillis(Long.getLong("ga.timeBudget") * 1000L);
+        }
+        if (System.getProperty("ga.plateau") != null) {
+            builder.plateauGenerations(Integer.getInteger("ga.plateau"));
+        }
+        if (System.getProperty("ga.target") != null) {
+            builder.targetFitness(Double.parseDouble(System.getProperty("ga.target")));
+        }
+        if (System.getProperty("ga.checkpoint") != null) {
+            builder.checkpoint(new File(System.getProperty("ga.checkpoint")),
+                    Integer.getInteger("ga.checkpointInterval", 10));
+        }
+        return builder.build();
+    }
+
+    /**
+     * function that sets up the generation telemetry asked for with system
+     * properties: -Dga.log=FILE writes a CSV log, or JSON lines if FILE ends in
+     * .jsonl, and -Dga.jfr=true commits a JFR event per generation
+     * 
+     * @return the listeners
+     */
+    private static List<GenerationListener> generationListeners() {
+        List<GenerationListener> listeners = new ArrayList<GenerationListener>();
+        String log = System.getProperty("ga.log");
+        if (log != null) {
+            try {
+                GenerationLog.Format format = log.endsWith(".jsonl") ? GenerationLog.Format.JSON
+                        : GenerationLog.Format.CSV;
+                listeners.add(new GenerationLog(new PrintStream(new FileOutputStream(log)), format));
+            } catch (FileNotFoundException e) {
+                System.out.println("Could not open generation log " + log);
+            }
+        }
+        if (Boolean.getBoolean("ga.jfr")) {
+            listeners.add(new JfrGenerationListener());
+        }
+        return listeners;
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * Fast non-dominated sorting and crowding distance over primitive arrays, for
+ * NSGA-II. Every objective is maximised. The points are sorted once
+ * lexicographically, so no point can be dominated by one after it, and each
+ * point is then put in the first front none of whose members dominates it,
+ * found by binary search over the fronts (ENS-BS). Points with exactly the same
+ * objectives are given the front of the first of them without any dominance
+ * checks, which matters when a large population holds many copies of the same
+ * rules. All the work arrays are allocated once for the largest number of
+ * points.
+ */
+class NonDominatedSorter {
+
+    private final int objectives;
+    private final int capacity;
+
+    // front of every point, 0 for the non-dominated front, and crowding distance
+    final int[] rank;
+    final double[] crowding;
+
+    // points ordered front by front after crowding(), with the start of every
+    // front and one more entry for the end of the last
+    final int[] byFront;
+    final int[] frontStart;
+    int fronts = 0;
+
+    // sort order and merge scratch, and the members of every front as linked
+    // lists from the last one added
+    private final int[] order;
+    private final int[] scratch;
+    private final int[] previous;
+    private final int[] last;
+
+    // objectives and sort key used by the merge sort
+    private double[] values;
+    private int key;
+
+    // keys of the merge sort besides the index of an objective
+    private static final int lexicographic = -1;
+    private static final int byCrowding = -2;
+
+    /**
+     * @param objectives, number of objectives per point
+     * @param capacity,   most points sorted at once
+     */
+    NonDominatedSorter(int objectives, int capacity) {
+        this.objectives = objectives;
+        this.capacity = capacity;
+        this.rank = new int[capacity];
+        this.crowding = new double[capacity];
+        this.byFront = new int[capacity];
+        this.frontStart = new int[capacity + 1];
+        this.order = new int[capacity];
+        this.scratch = new int[capacity];
+        this.previous = new int[capacity];
+        this.last = new int[capacity];
+    }
+
+    /**
+     * function that sorts points into fronts and works out their crowding
+     * distance within their front
+     *
+     * @param values, objectives of point i at objectives * i, larger is better
+     * @param n,      number of points
+     * @return the number of fronts
+     */
+    int sort(double[] values, int n) {
+        if (n > capacity) {
+            throw new IllegalArgumentException(n + " points, more than " + capacity);
+        }
+        this.values = values;
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sortIndices(order, 0, n, lexicographic);
+
+        fronts = 0;
+        for (int k = 0; k < n; k++) {
+            int s = order[k];
+            if (k > 0 && same(order[k - 1], s)) {
+                rank[s] = rank[order[k - 1]];
+                continue;
+            }
+            int low = 0;
+            int high = fronts;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (frontDominates(mid, s)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low == fronts) {
+                last[fronts++] = -1;
+            }
+            previous[s] = last[low];
+            last[low] = s;
+            rank[s] = low;
+        }
+        crowding(n);
+        return fronts;
+    }
+
+    /**
+     * function that orders the members of a front by crowding distance, largest
+     * first, to choose which of them survive when only part of the front fits
+     *
+     * @param front, index of the front
+     */
+    void sortByCrowding(int front) {
+        sortIndices(byFront, frontStart[front], frontStart[front + 1], byCrowding);
+    }
+
+    // function that groups the points by front and works out the crowding
+    // distance of every point along every objective
+    private void crowding(int n) {
+        for (int f = 0; f <= fronts; f++) {
+            frontStart[f] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            frontStart[rank[i] + 1]++;
+        }
+        for (int f = 0; f < fronts; f++) {
+            frontStart[f + 1] += frontStart[f];
+        }
+        // filled in the lexicographic order, so the fronts keep it
+        for (int f = 0; f < fronts; f++) {
+            last[f] = frontStart[f];
+        }
+        for (int k = 0; k < n; k++) {
+            int s = order[k];
+            byFront[last[rank[s]]++] = s;
+            crowding[s] = 0.0;
+        }
+        for (int f = 0; f < fronts; f++) {
+            int from = frontStart[f];
+            int to = frontStart[f + 1];
+            if (to - from <= 2) {
+                for (int k = from; k < to; k++) {
+                    crowding[byFront[k]] = Double.POSITIVE_INFINITY;
+                }
+                continue;
+            }
+            for (int j = 0; j < objectives; j++) {
+                sortIndices(byFront, from, to, j);
+                int first = byFront[from];
+                int end = byFront[to - 1];
+                double low = values[first * objectives + j];
+                double high = values[end * objectives + j];
+                crowding[first] = Double.POSITIVE_INFINITY;
+                crowding[end] = Double.POSITIVE_INFINITY;
+                if (high == low) {
+                    continue;
+                }
+                for (int k = from + 1; k < to - 1; k++) {
+                    double gap = values[byFront[k + 1] * objectives + j] - values[byFront[k - 1] * objectives + j];
+                    crowding[byFront[k]] += gap / (high - low);
+                }
+            }
+        }
+    }
+
+    // function that checks if any member of a front dominates point s, starting
+    // from the most recently added member
+    private boolean frontDominates(int front, int s) {
+        for (int p = last[front]; p >= 0; p = previous[p]) {
+            if (dominates(p, s)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // function that checks if point a is at least as good as b in every
+    // objective and better in one
+    private boolean dominates(int a, int b) {
+        boolean better = false;
+        int oa = a * objectives;
+        int ob = b * objectives;
+        for (int j = 0; j < objectives; j++) {
+            double va = values[oa + j];
+            double vb = values[ob + j];
+            if (va < vb) {
+                return false;
+            }
+            if (va > vb) {
+                better = true;
+            }
+        }
+        return better;
+    }
+
+    // function that checks if two points have the same objectives
+    private boolean same(int a, int b) {
+        for (int j = 0; j < objectives; j++) {
+            if (values[a * objectives + j] != values[b * objectives + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * function that compares two points by the current sort key
+     *
+     * @return negative if a goes first: objectives descending in turn for the
+     *         lexicographic key, crowding descending, or one objective ascending
+     */
+    private int compare(int a, int b) {
+        if (key == lexicographic) {
+            for (int j = 0; j < objectives; j++) {
+                int c = Double.compare(values[b * objectives + j], values[a * objectives + j]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        }
+        if (key == byCrowding) {
+            return Double.compare(crowding[b], crowding[a]);
+        }
+        return Double.compare(values[a * objectives + key], values[b * objectives + key]);
+    }
+
+    // function that stably sorts a range of point indices by a key, with a
+    // bottom-up merge sort through the scratch array
+    private void sortIndices(int[] indices, int from, int to, int key) {
+        this.key = key;
+        int[] source = indices;
+        int[] target = scratch;
+        for (int width = 1; width < to - from; width *= 2) {
+            for (int low = from; low < to; low += 2 * width) {
+                int mid = Math.min(low + width, to);
+                int high = Math.min(low + 2 * width, to);
+                int i = low;
+                int j = mid;
+                int k = low;
+                while (i < mid && j < high) {
+                    target[k++] = compare(source[j], source[i]) < 0 ? source[j++] : source[i++];
+                }
+                while (i < mid) {
+                    target[k++] = source[i++];
+                }
+                while (j < high) {
+                    target[k++] = source[j++];
+                }
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != indices) {
+            System.arraycopy(source, from, indices, from, to - from);
+        }
+    }
+}
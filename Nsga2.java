@@ -0,0 +1,324 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Multi-objective mode (NSGA-II). Instead of the single fitness sensitivity *
+ * specificity, every rule is scored on three objectives that are maximised
+ * together: sensitivity, specificity and coverage (the fraction of the
+ * training rows it covers, i.e. how often it trades). The result is the Pareto
+ * front: the rules no other rule beats on all three, from precise rules that
+ * rarely fire to broad ones that fire often.
+ *
+ * Every generation breeds as many offspring as there are parents with the
+ * mutation, crossover and reproduction of the GA, picking parents by crowded
+ * tournament (lower front first, then larger crowding distance). Parents and
+ * offspring are sorted into fronts together and the best half survives, whole
+ * fronts first and the last front cut by crowding distance. The population,
+ * objectives and fronts live in primitive arrays allocated once, so a
+ * generation allocates nothing and populations of tens of thousands stay fast.
+ * For genomes of up to 20 bits the confusion counts of every rule are kept in a
+ * table, so only rules that were never seen are passed to the evaluator.
+ */
+class Nsga2 {
+
+    // number of objectives: sensitivity, specificity, coverage
+    static final int objectives = 3;
+
+    // widest genome whose confusion counts are kept in a table
+    private static final int maxTableBits = 20;
+
+    private final GAConfig config;
+    private final int populationSize;
+    private final int genomeBits;
+    private final int labelBit;
+    private final long pairMask;
+    private final long[] trainingData;
+    private final long[] testingData;
+    private final FitnessEvaluator evaluator;
+    private Rng random;
+
+    // parents in the first half and offspring in the second, with the objectives
+    // of individual i at objectives * i; the survivors are copied into the next
+    // buffers, which are then swapped with these
+    long[] population;
+    double[] values;
+    private long[] nextPopulation;
+    private double[] nextValues;
+
+    // front and crowding distance of every parent, used by the tournaments
+    final int[] rank;
+    final double[] crowding;
+
+    private final NonDominatedSorter sorter;
+
+    // confusion counts of every rule seen so far when the genome fits a table,
+    // bit r of known set once rule r is in it
+    private final int[] table;
+    private final long[] known;
+
+    // rules passed to the evaluator and their counts
+    private final long[] missRules;
+    private final int[] missCounts;
+
+    int generation = 0;
+
+    /**
+     * Constructor for a run over the output of the modelling class
+     *
+     * @param config,    parameters of the run; the plateau, target fitness and
+     *                   checkpoint settings are not used
+     * @param rows,      packed instances of the modelling class
+     */
+    Nsga2(GAConfig config, long[] rows) {
+        this(config, GA.prepareData(rows, config.training),
+                config.seeded ? new Rng(config.seed) : Rng.unseeded());
+    }
+
+    /**
+     * @param config, parameters of the run
+     * @param split,  packed training data followed by packed testing data
+     * @param random, random numbers for this run only
+     */
+    Nsga2(GAConfig config, long[][] split, Rng random) {
+        this.config = config;
+        this.populationSize = config.populationSize;
+        this.genomeBits = config.registry.genomeBits();
+        this.labelBit = config.registry.labelBit();
+        this.pairMask = config.registry.pairMask();
+        this.trainingData = split[0];
+        this.testingData = split[1];
+        this.random = random;
+        this.evaluator = FitnessEvaluator.create(trainingData, labelBit, pairMask, null, config.threads);
+        this.population = new long[2 * populationSize];
+        this.values = new double[2 * objectives * populationSize];
+        this.nextPopulation = new long[2 * populationSize];
+        this.nextValues = new double[2 * objectives * populationSize];
+        this.rank = new int[populationSize];
+        this.crowding = new double[populationSize];
+        this.sorter = new NonDominatedSorter(objectives, 2 * populationSize);
+        if (genomeBits <= maxTableBits) {
+            this.table = new int[4 << genomeBits];
+            this.known = new long[FeatureMatrix.words(1 << genomeBits)];
+        } else {
+            this.table = null;
+            this.known = null;
+        }
+        this.missRules = new long[populationSize];
+        this.missCounts = new int[4 * populationSize];
+
+        for (int i = 0; i < populationSize; i++) {
+            population[i] = GA.randomRule(genomeBits, random);
+        }
+        evaluate(0, populationSize);
+        sorter.sort(values, populationSize);
+        System.arraycopy(sorter.rank, 0, rank, 0, populationSize);
+        System.arraycopy(sorter.crowding, 0, crowding, 0, populationSize);
+    }
+
+    // function that runs generations until the generation limit or the time
+    // budget is reached
+    void run() {
+        long deadline = config.timeBudgetMillis > 0 ? System.nanoTime() + config.timeBudgetMillis * 1000000L
+                : Long.MAX_VALUE;
+        while (generation < config.maxGenerations && System.nanoTime() < deadline) {
+            nextGeneration();
+        }
+    }
+
+    // function that breeds the offspring, evaluates them and keeps the best
+    // half of parents and offspring
+    void nextGeneration() {
+        int current = 0;
+        while (current < populationSize) {
+            double randomProb = random.nextDouble();
+            int index = populationSize + current;
+            if (randomProb <= config.mutationProbability || (populationSize - current) == 1) {
+                population[index] = GA.twoPointMutation(population[select()], genomeBits, random);
+                current++;
+            } else if (randomProb <= config.mutationProbability + config.crossoverProbability) {
+                long p1 = population[select()];
+                long p2 = population[select()];
+                GA.twoPointCrossover(p1, p2, population, index, genomeBits, random);
+                current += 2;
+            } else {
+                // reproduction, the winner is copied unchanged
+                population[index] = population[select()];
+                current++;
+            }
+        }
+        evaluate(populationSize, 2 * populationSize);
+
+        int fronts = sorter.sort(values, 2 * populationSize);
+        int kept = 0;
+        for (int f = 0; f < fronts && kept < populationSize; f++) {
+            int from = sorter.frontStart[f];
+            int to = sorter.frontStart[f + 1];
+            if (kept + to - from > populationSize) {
+                sorter.sortByCrowding(f);
+                to = from + populationSize - kept;
+            }
+            for (int k = from; k < to; k++) {
+                int s = sorter.byFront[k];
+                nextPopulation[kept] = population[s];
+                System.arraycopy(values, objectives * s, nextValues, objectives * kept, objectives);
+                rank[kept] = sorter.rank[s];
+                crowding[kept] = sorter.crowding[s];
+                kept++;
+            }
+        }
+        long[] swapPopulation = population;
+        population = nextPopulation;
+        nextPopulation = swapPopulation;
+        double[] swapValues = values;
+        values = nextValues;
+        nextValues = swapValues;
+        generation++;
+    }
+
+    /**
+     * function that runs a crowded tournament over the parents: the entrant in
+     * the lowest front wins, and between entrants of the same front the one
+     * with the larger crowding distance
+     *
+     * @return individual selected
+     */
+    int select() {
+        int winner = random.nextInt(populationSize);
+        for (int i = 1; i < config.tournamentSize; i++) {
+            int other = random.nextInt(populationSize);
+            if (rank[other] < rank[winner] || (rank[other] == rank[winner] && crowding[other] > crowding[winner])) {
+                winner = other;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * function that works out the objectives of a range of the population,
+     * passing only the rules not in the table to the evaluator
+     *
+     * @param from, first individual
+     * @param to,   one after the last individual
+     */
+    private void evaluate(int from, int to) {
+        if (table == null) {
+            System.arraycopy(population, from, missRules, 0, to - from);
+            evaluator.confusion(missRules, to - from, missCounts);
+            for (int i = from; i < to; i++) {
+                setValues(i, missCounts, 4 * (i - from));
+            }
+            return;
+        }
+        int misses = 0;
+        for (int i = from; i < to; i++) {
+            int rule = (int) population[i];
+            if ((known[rule >>> 6] >>> rule & 1L) == 0) {
+                // marked now so a rule drawn twice is evaluated once
+                known[rule >>> 6] |= 1L << rule;
+                missRules[misses++] = rule;
+            }
+        }
+        evaluator.confusion(missRules, misses, missCounts);
+        for (int m = 0; m < misses; m++) {
+            System.arraycopy(missCounts, 4 * m, table, 4 * (int) missRules[m], 4);
+        }
+        for (int i = from; i < to; i++) {
+            setValues(i, table, 4 * (int) population[i]);
+        }
+    }
+
+    /**
+     * function that writes the objectives of an individual from its confusion
+     * counts; a ratio with nothing to divide by counts as 0
+     *
+     * @param i,      individual
+     * @param counts, confusion counts
+     * @param offset, where the TP, FP, FN and TN of the individual start
+     */
+    private void setValues(int i, int[] counts, int offset) {
+        int TP = counts[offset];
+        int FP = counts[offset + 1];
+        int FN = counts[offset + 2];
+        int TN = counts[offset + 3];
+        values[objectives * i] = TP + FN > 0 ? TP / (double) (TP + FN) : 0.0;
+        values[objectives * i + 1] = FP + TN > 0 ? TN / (double) (FP + TN) : 0.0;
+        values[objectives * i + 2] = (TP + FP) / (double) (TP + FP + FN + TN);
+    }
+
+    /**
+     * function that returns the Pareto front of the population: the distinct
+     * rules in the first front
+     *
+     * @return packed rules, in ascending order
+     */
+    long[] paretoFront() {
+        long[] front = new long[populationSize];
+        int size = 0;
+        for (int i = 0; i < populationSize; i++) {
+            if (rank[i] == 0) {
+                front[size++] = population[i];
+            }
+        }
+        Arrays.sort(front, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || front[i] != front[distinct - 1]) {
+                front[distinct++] = front[i];
+            }
+        }
+        return Arrays.copyOf(front, distinct);
+    }
+
+    // function that prints every rule of the Pareto front with its objectives
+    // on the training data and its accuracy on the test data, by coverage
+    void printFront() {
+        long[] front = paretoFront();
+        int[] counts = new int[4 * front.length];
+        evaluator.confusion(front, front.length, counts);
+        Integer[] order = new Integer[front.length];
+        double[] coverage = new double[front.length];
+        for (int i = 0; i < front.length; i++) {
+            order[i] = i;
+            coverage[i] = (counts[4 * i] + counts[4 * i + 1]) / (double) trainingData.length;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(coverage[b], coverage[a]);
+            }
+        });
+        System.out.println("Pareto front: " + front.length + " rules after " + generation + " generations");
+        System.out.println(String.format(Locale.ROOT, "%11s %11s %8s %9s %9s  %s", "sensitivity", "specificity",
+                "coverage", "instances", "accuracy", "rule"));
+        for (int i : order) {
+            int TP = counts[4 * i];
+            int FP = counts[4 * i + 1];
+            int FN = counts[4 * i + 2];
+            int TN = counts[4 * i + 3];
+            int[] result = GA.testResult(front[i], testingData, labelBit, pairMask);
+            System.out.println(String.format(Locale.ROOT, "%11.4f %11.4f %8.4f %9d %9s  %s",
+                    TP + FN > 0 ? TP / (double) (TP + FN) : 0.0, FP + TN > 0 ? TN / (double) (FP + TN) : 0.0,
+                    coverage[i], result[0],
+                    result[0] > 0 ? String.format(Locale.ROOT, "%.4f", result[1] / (double) result[0]) : "-",
+                    config.registry.describe(front[i])));
+        }
+    }
+
+    // function that releases the threads of the evaluator
+    void close() {
+        evaluator.close();
+    }
+
+    // Main that runs the multi-objective mode on the output of the modelling
+    // class and prints the Pareto front. Optional argument: number of threads
+    public static void main(String[] args) {
+        Modelling model = new Modelling(new File("PriceData.csv"), new File("PriceData.features"));
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        Nsga2 nsga = new Nsga2(Modelling.gaConfig(threads), model.getRows());
+        nsga.run();
+        nsga.printFront();
+        nsga.close();
+    }
+}
@@ -0,0 +1,165 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Evaluator that spreads the work over a ForkJoinPool. Normally the population
+ * is split between the threads; when there are few individuals and a lot of
+ * training rows the rows are split instead and the confusion counts of the
+ * pieces are added up. Every individual is scored from whole integer counts,
+ * so the fitness is the same whatever the number of threads.
+ */
+class ParallelEvaluator extends RowScanEvaluator {
+
+    // fewest training rows given to one task when the rows are split
+    private static final int minRowsPerTask = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param rows,     packed training instances
+     * @param labelBit, index of the YES/NO bit
+     * @param pairMask, mask with the first bit of every feature pair set
+     * @param threads,  number of worker threads
+     */
+    ParallelEvaluator(long[] rows, int labelBit, long pairMask, int threads) {
+        this(rows, labelBit, pairMask, null, threads);
+    }
+
+    /**
+     * @param rows,      packed training instances
+     * @param labelBit,  index of the YES/NO bit
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param remaining, bit r set if row r is scanned, or null for every row
+     * @param threads,   number of worker threads
+     */
+    ParallelEvaluator(long[] rows, int labelBit, long pairMask, long[] remaining, int threads) {
+        super(rows, labelBit, pairMask, remaining);
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @Override
+    public void evaluate(long[] population, int size, double[] fitness) {
+        split(population, size, fitness, null);
+    }
+
+    @Override
+    public void confusion(long[] population, int size, int[] counts) {
+        split(population, size, null, counts);
+    }
+
+    /**
+     * function that splits the population, or the rows, between the threads
+     * and writes either the fitness or the confusion counts of every individual
+     *
+     * @param population, packed rules
+     * @param size,       number of individuals
+     * @param fitness,    array the fitness is written to, or null
+     * @param confusion,  array the TP, FP, FN and TN of individual i are written
+     *                    to at 4 * i, or null
+     */
+    private void split(long[] population, int size, double[] fitness, int[] confusion) {
+        int tasks = pool.getParallelism() * 4;
+        if (size >= tasks || rows.length < 2 * minRowsPerTask) {
+            int perTask = Math.max(1, size / tasks);
+            pool.invoke(new PopulationTask(population, fitness, confusion, 0, size, perTask));
+        } else {
+            int perTask = Math.max(minRowsPerTask, rows.length / tasks);
+            int[] counts = pool.invoke(new RowTask(population, size, 0, rows.length, perTask));
+            if (confusion != null) {
+                System.arraycopy(counts, 0, confusion, 0, size * 4);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                int c = i * 4;
+                fitness[i] = fitness(counts[c], counts[c + 1], counts[c + 2], counts[c + 3]);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // task that scores (or counts) a range of individuals over all the training rows
+    private class PopulationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final long[] population;
+        private final double[] fitness;
+        private final int[] confusion;
+        private final int from;
+        private final int to;
+        private final int perTask;
+
+        PopulationTask(long[] population, double[] fitness, int[] confusion, int from, int to, int perTask) {
+            this.population = population;
+            this.fitness = fitness;
+            this.confusion = confusion;
+            this.from = from;
+            this.to = to;
+            this.perTask = perTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= perTask) {
+                if (confusion != null) {
+                    for (int i = from; i < to; i++) {
+                        confusion[4 * i] = confusion[4 * i + 1] = confusion[4 * i + 2] = confusion[4 * i + 3] = 0;
+                        count(population[i], rows, remaining, 0, rows.length, labelBit, pairMask, confusion, 4 * i);
+                    }
+                    return;
+                }
+                int[] counts = new int[4];
+                for (int i = from; i < to; i++) {
+                    counts[0] = counts[1] = counts[2] = counts[3] = 0;
+                    count(population[i], rows, remaining, 0, rows.length, labelBit, pairMask, counts, 0);
+                    fitness[i] = fitness(counts[0], counts[1], counts[2], counts[3]);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PopulationTask(population, fitness, confusion, from, mid, perTask),
+                        new PopulationTask(population, fitness, confusion, mid, to, perTask));
+            }
+        }
+    }
+
+    // task that counts TP, FP, FN and TN of every individual over a range of rows
+    private class RowTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+        private final long[] population;
+        private final int size;
+        private final int from;
+        private final int to;
+        private final int perTask;
+
+        RowTask(long[] population, int size, int from, int to, int perTask) {
+            this.population = population;
+            this.size = size;
+            this.from = from;
+            this.to = to;
+            this.perTask = perTask;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= perTask) {
+                int[] counts = new int[size * 4];
+                for (int i = 0; i < size; i++) {
+                    count(population[i], rows, remaining, from, to, labelBit, pairMask, counts, i * 4);
+                }
+                return counts;
+            }
+            int mid = (from + to) >>> 1;
+            RowTask right = new RowTask(population, size, mid, to, perTask);
+            right.fork();
+            int[] counts = new RowTask(population, size, from, mid, perTask).compute();
+            int[] other = right.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other[i];
+            }
+            return counts;
+        }
+    }
+}
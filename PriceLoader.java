@@ -0,0 +1,229 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads "price,increase" CSV files by memory-mapping them and parsing the
+ * numbers straight out of the mapped bytes, without building a String for
+ * every line. Files are mapped a chunk at a time, so load() is only limited by
+ * the size of the primitive columns it fills, and stream() can run over files
+ * larger than the heap by handing every day to a consumer instead of keeping
+ * it.
+ */
+final class PriceLoader {
+
+    // increase given to days whose outcome is not known (NA)
+    static final int unknown = -1;
+
+    // largest region mapped at once
+    static final int chunkSize = 1 << 28;
+
+    // powers of ten that are exact as doubles
+    private static final double[] powersOfTen = new double[23];
+    static {
+        powersOfTen[0] = 1.0;
+        for (int i = 1; i < powersOfTen.length; i++) {
+            powersOfTen[i] = powersOfTen[i - 1] * 10.0;
+        }
+    }
+
+    // receives the days of a file one at a time
+    interface Consumer {
+        void accept(double price, int increase);
+    }
+
+    private PriceLoader() {
+    }
+
+    /**
+     * function that reads a whole price file into primitive columns
+     * 
+     * @param file, CSV file of price,increase lines
+     * @return the price series
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    static PriceSeries load(File file) throws IOException {
+        // a line holds at least "0,0\n", so this is an upper bound on the days
+        long estimate = Math.min(file.length() / 4 + 1, Integer.MAX_VALUE - 8);
+        final PriceSeries series = new PriceSeries((int) Math.min(estimate, 1 << 20));
+        stream(file, new Consumer() {
+            @Override
+            public void accept(double price, int increase) {
+                series.add(price, increase);
+            }
+        });
+        return series;
+    }
+
+    /**
+     * function that maps a price file chunk by chunk and passes every day to the
+     * consumer, in file order
+     * 
+     * @param file,     CSV file of price,increase lines
+     * @param consumer, receives every day
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    static void stream(File file, Consumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(chunkSize, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+                int consumed = parseChunk(buffer, length, last, consumer);
+                if (consumed == 0) {
+                    throw new IOException("line longer than " + chunkSize + " bytes at offset " + position);
+                }
+                position += consumed;
+            }
+        }
+    }
+
+    /**
+     * function that parses the complete lines of a mapped chunk
+     * 
+     * @param buffer,   mapped chunk
+     * @param length,   number of bytes in the chunk
+     * @param last,     true if the chunk ends at the end of the file
+     * @param consumer, receives every day
+     * @return number of bytes used, the start of the first incomplete line
+     * @throws IOException if a line is malformed
+     */
+    private static int parseChunk(MappedByteBuffer buffer, int length, boolean last, Consumer consumer)
+            throws IOException {
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == length && !last) {
+                return lineStart;
+            }
+            int end = lineEnd;
+            if (end > lineStart && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > lineStart) {
+                parseLine(buffer, lineStart, end, consumer);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return length;
+    }
+
+    /**
+     * function that parses one "price,increase" line
+     * 
+     * @param buffer,   mapped chunk
+     * @param start,    first byte of the line
+     * @param end,      byte after the line
+     * @param consumer, receives the day
+     * @throws IOException if the line is malformed
+     */
+    private static void parseLine(MappedByteBuffer buffer, int start, int end, Consumer consumer)
+            throws IOException {
+        int comma = start;
+        while (comma < end && buffer.get(comma) != ',') {
+            comma++;
+        }
+        if (comma == end) {
+            throw new IOException("missing ',' in line: " + text(buffer, start, end));
+        }
+        double price = parseDouble(buffer, start, comma);
+        int from = comma + 1;
+        int to = end;
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        // the last days of a file have no known outcome yet and are marked NA
+        if (to - from == 2 && buffer.get(from) == 'N' && buffer.get(from + 1) == 'A') {
+            consumer.accept(price, unknown);
+            return;
+        }
+        int increase = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new IOException("bad increase in line: " + text(buffer, start, end));
+            }
+            increase = increase * 10 + (b - '0');
+        }
+        if (from == to) {
+            throw new IOException("missing increase in line: " + text(buffer, start, end));
+        }
+        consumer.accept(price, increase);
+    }
+
+    /**
+     * function that parses a decimal number from the mapped bytes. Plain decimals
+     * with up to 18 digits are built from an exact integer and a single division
+     * by an exact power of ten, so they round exactly like Double.parseDouble;
+     * anything else is handed to Double.parseDouble
+     * 
+     * @param buffer, mapped chunk
+     * @param start,  first byte of the number
+     * @param end,    byte after the number
+     * @return the number
+     * @throws IOException if the bytes are not a number
+     */
+    static double parseDouble(MappedByteBuffer buffer, int start, int end) throws IOException {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+        }
+        if (i < end || digits == 0 || digits > 18 || mantissa >= (1L << 53)
+                || fraction >= powersOfTen.length) {
+            try {
+                return Double.parseDouble(text(buffer, start, end));
+            } catch (NumberFormatException e) {
+                throw new IOException("bad price: " + text(buffer, start, end), e);
+            }
+        }
+        double value = mantissa;
+        if (fraction > 0) {
+            value /= powersOfTen[fraction];
+        }
+        return negative ? -value : value;
+    }
+
+    // function that copies a range of the mapped bytes into a string
+    private static String text(MappedByteBuffer buffer, int start, int end) {
+        StringBuilder line = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            line.append((char) (buffer.get(i) & 0xff));
+        }
+        return line.toString();
+    }
+}
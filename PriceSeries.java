@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ * A price series held in primitive columns: the price of every day and whether
+ * the price increases (1) or decreases (0) over the following 14 days, or -1
+ * for the last days where that is not known yet.
+ */
+class PriceSeries {
+
+    double[] prices;
+    byte[] increases;
+    int size = 0;
+
+    PriceSeries() {
+        this(1024);
+    }
+
+    /**
+     * @param capacity, number of days space is reserved for
+     */
+    PriceSeries(int capacity) {
+        prices = new double[Math.max(1, capacity)];
+        increases = new byte[prices.length];
+    }
+
+    /**
+     * function that adds a day to the end of the series
+     * 
+     * @param price,    price of the day
+     * @param increase, 0/1 for decrease/increase, -1 if not known
+     */
+    void add(double price, int increase) {
+        if (size == prices.length) {
+            int capacity = prices.length * 2;
+            prices = Arrays.copyOf(prices, capacity);
+            increases = Arrays.copyOf(increases, capacity);
+        }
+        prices[size] = price;
+        increases[size] = (byte) increase;
+        size++;
+    }
+
+    // number of days in the series
+    int size() {
+        return size;
+    }
+
+    /**
+     * function that returns the price for a given index
+     * 
+     * @param index of the day, counting from 0
+     * @return price
+     */
+    double price(int index) {
+        return prices[index];
+    }
+
+    /**
+     * function that returns weather the price increases for a given index
+     * 
+     * @param index of the day, counting from 0
+     * @return 0/1 for decrease/increase, -1 if not known
+     */
+    int increase(int index) {
+        return increases[index];
+    }
+}
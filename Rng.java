@@ -0,0 +1,126 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Splittable random numbers (SplitMix64, the generator behind
+ * SplittableRandom). A run has one root generator made from its seed, and
+ * every thread or island that draws numbers gets its own generator split off
+ * the root in a fixed order, so the streams are independent, never shared
+ * between threads, and the same for a given seed and thread count.
+ *
+ * Unlike java.util.Random there is no atomic update on every draw, and the
+ * whole state is two longs that are written to and read back from checkpoints.
+ * An Rng must only be used by one thread at a time.
+ */
+final class Rng implements RandomGenerator {
+
+    private static final long goldenGamma = 0x9e3779b97f4a7c15L;
+
+    // seeds of unseeded generators, different in every JVM and every call
+    private static final AtomicLong seeder = new AtomicLong(
+            mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long seed;
+    private final long gamma;
+
+    /**
+     * Constructor for the root generator of a seeded run
+     *
+     * @param seed, seed of the run
+     */
+    Rng(long seed) {
+        this(seed, goldenGamma);
+    }
+
+    private Rng(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    // function that returns a generator with a seed nobody chose, for runs that
+    // do not need to be repeated
+    static Rng unseeded() {
+        long s = seeder.getAndAdd(2 * goldenGamma);
+        return new Rng(mix64(s), mixGamma(s + goldenGamma));
+    }
+
+    /**
+     * function that derives the seed of one stream of a seeded job from the
+     * job's seed and the position of the stream (a sweep run, an instrument),
+     * mixing the bits so neighbouring streams are unrelated
+     *
+     * @param seed,  seed of the job
+     * @param index, position of the stream
+     * @return seed of the stream
+     */
+    static long streamSeed(long seed, int index) {
+        return mix64(seed + (index + 1) * goldenGamma);
+    }
+
+    // function that returns a new generator whose numbers are independent of
+    // this one's; this generator moves on by two draws
+    Rng split() {
+        return new Rng(mix64(nextSeed()), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (mix64(nextSeed()) >>> 32);
+    }
+
+    /**
+     * function that writes the state of the generator
+     *
+     * @param out, where the state goes
+     * @throws IOException if it cannot be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(gamma);
+    }
+
+    /**
+     * function that reads a generator written by writeTo()
+     *
+     * @param in, where the state comes from
+     * @return a generator that carries on where the written one was
+     * @throws IOException if it cannot be read or is not a valid state
+     */
+    static Rng readFrom(DataInput in) throws IOException {
+        long seed = in.readLong();
+        long gamma = in.readLong();
+        if ((gamma & 1L) == 0) {
+            throw new IOException("bad random state");
+        }
+        return new Rng(seed, gamma);
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    // function that mixes the bits of a value (Stafford variant 13)
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // function that turns a value into a gamma: odd, with enough bit flips
+    // between neighbouring bits
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Evaluator that scans every training row for every individual on the calling
+ * thread. A bitset of remaining rows can be given, in which case only those
+ * rows are scanned. The counting and scoring functions are shared with the parallel
+ * evaluator so both give exactly the same fitness.
+ */
+class RowScanEvaluator implements FitnessEvaluator {
+
+    final long[] rows;
+    final int labelBit;
+    final long pairMask;
+
+    // bit r set if row r is still scanned, or null to scan every row
+    final long[] remaining;
+
+    // confusion counts reused by evaluate(), so a serial evaluator must only be
+    // used by one thread at a time
+    private final int[] counts = new int[4];
+
+    /**
+     * @param rows,     packed training instances
+     * @param labelBit, index of the YES/NO bit
+     * @param pairMask, mask with the first bit of every feature pair set
+     */
+    RowScanEvaluator(long[] rows, int labelBit, long pairMask) {
+        this(rows, labelBit, pairMask, null);
+    }
+
+    /**
+     * @param rows,      packed training instances
+     * @param labelBit,  index of the YES/NO bit
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param remaining, bit r set if row r is scanned, or null for every row
+     */
+    RowScanEvaluator(long[] rows, int labelBit, long pairMask, long[] remaining) {
+        this.rows = rows;
+        this.labelBit = labelBit;
+        this.pairMask = pairMask;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public void evaluate(long[] population, int size, double[] fitness) {
+        for (int i = 0; i < size; i++) {
+            counts[0] = counts[1] = counts[2] = counts[3] = 0;
+            count(population[i], rows, remaining, 0, rows.length, labelBit, pairMask, counts, 0);
+            fitness[i] = fitness(counts[0], counts[1], counts[2], counts[3]);
+        }
+    }
+
+    @Override
+    public void confusion(long[] population, int size, int[] counts) {
+        for (int i = 0; i < size; i++) {
+            counts[4 * i] = counts[4 * i + 1] = counts[4 * i + 2] = counts[4 * i + 3] = 0;
+            count(population[i], rows, remaining, 0, rows.length, labelBit, pairMask, counts, 4 * i);
+        }
+    }
+
+    /**
+     * function that adds the TP, FP, FN and TN of a rule over a range of rows to
+     * the counts array
+     *
+     * @param rule,     packed rule
+     * @param rows,     packed instances
+     * @param from,     first row (inclusive)
+     * @param to,       last row (exclusive)
+     * @param labelBit, index of the YES/NO bit
+     * @param pairMask, mask with the first bit of every feature pair set
+     * @param counts,   array the four counts are added to
+     * @param offset,   index of TP in the counts array
+     */
+    static void count(long rule, long[] rows, int from, int to, int labelBit, long pairMask, int[] counts,
+            int offset) {
+        int TP = 0;
+        int FP = 0;
+        int FN = 0;
+        int TN = 0;
+        for (int j = from; j < to; j++) {
+            long line = rows[j];
+            boolean equal = ((rule ^ line) >>> labelBit & 1L) == 0;
+            if (Rules.covers(rule, line, pairMask)) {
+                if (equal) {
+                    TP++;
+                } else {
+                    FP++;
+                }
+            } else {
+                if (equal) {
+                    FN++;
+                } else {
+                    TN++;
+                }
+            }
+        }
+        counts[offset] += TP;
+        counts[offset + 1] += FP;
+        counts[offset + 2] += FN;
+        counts[offset + 3] += TN;
+    }
+
+    /**
+     * function that adds the TP, FP, FN and TN of a rule over the rows of a range
+     * that are set in a bitset, skipping whole words of removed rows
+     *
+     * @param rule,      packed rule
+     * @param rows,      packed instances
+     * @param remaining, bit r set if row r is counted, or null for every row
+     * @param from,      first row (inclusive)
+     * @param to,        last row (exclusive)
+     * @param labelBit,  index of the YES/NO bit
+     * @param pairMask,  mask with the first bit of every feature pair set
+     * @param counts,    array the four counts are added to
+     * @param offset,    index of TP in the counts array
+     */
+    static void count(long rule, long[] rows, long[] remaining, int from, int to, int labelBit, long pairMask,
+            int[] counts, int offset) {
+        if (remaining == null) {
+            count(rule, rows, from, to, labelBit, pairMask, counts, offset);
+            return;
+        }
+        int TP = 0;
+        int FP = 0;
+        int FN = 0;
+        int TN = 0;
+        for (int w = from >>> 6; w < FeatureMatrix.words(to); w++) {
+            long word = remaining[w];
+            if (w == from >>> 6) {
+                word &= -1L << from;
+            }
+            if (w == (to - 1) >>> 6) {
+                word &= -1L >>> (63 - ((to - 1) & 63));
+            }
+            while (word != 0) {
+                int j = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                long line = rows[j];
+                boolean equal = ((rule ^ line) >>> labelBit & 1L) == 0;
+                if (Rules.covers(rule, line, pairMask)) {
+                    if (equal) {
+                        TP++;
+                    } else {
+                        FP++;
+                    }
+                } else {
+                    if (equal) {
+                        FN++;
+                    } else {
+                        TN++;
+                    }
+                }
+            }
+        }
+        counts[offset] += TP;
+        counts[offset + 1] += FP;
+        counts[offset + 2] += FN;
+        counts[offset + 3] += TN;
+    }
+
+    /**
+     * function that turns a confusion matrix into the fitness of a rule,
+     * sensitivity * specificity, with 0 when either is undefined
+     *
+     * @return fitness
+     */
+    static double fitness(int TP, int FP, int FN, int TN) {
+        double sensitivity = TP / (TP + (double) FN);
+        double specificity = TN / (FP + (double) TN);
+        double f = sensitivity * specificity;
+        if (Double.isNaN(f)) {
+            return 0.0;
+        }
+        return f;
+    }
+}
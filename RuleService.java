@@ -0,0 +1,569 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Long-lived local service, so a job does not pay for JVM start-up, parsing and
+ * feature building every time. It listens on the loopback address only, over
+ * HTTP, and works fully offline. The instruments are the price files of one
+ * directory; the first job on an instrument loads it and its packed training
+ * and test rows then stay resident for every later job.
+ *
+ * Jobs are posted with query parameters and answered with JSON:
+ *
+ * POST /evolve?instrument=NAME[&seed=&populationSize=&generations=&tournamentSize=&timeBudgetMillis=]
+ * POST /evaluate?instrument=NAME&rule=PACKED (or &bits=0101..., bit 0 first)
+ * POST /load?instrument=NAME
+ * GET /instruments, GET /status
+ *
+ * A parameter out of range (a populationSize or generations over the caps
+ * below, a tournamentSize over the population) is refused with 400, and so is
+ * an evolve job whose population times generations times training rows is over
+ * maxRowEvaluations. Every evolve job also runs under a wall-clock budget of at
+ * most maxJobMillis; a GA that reaches it stops like any other run that is out
+ * of time, answers with the best rule so far and reports TIME_BUDGET as its
+ * stopReason.
+ *
+ * Jobs run on one worker thread per core with a bounded queue in front. When
+ * the queue is full the job is refused straight away with 503 and a
+ * Retry-After header instead of piling up, so a client submitting thousands of
+ * jobs backs off rather than exhausting the memory of the service. Every GA
+ * runs on its worker's thread only.
+ */
+class RuleService {
+
+    // names of instruments, which are also their file names without .csv
+    private static final Pattern instrumentName = Pattern.compile("[A-Za-z0-9._-]+");
+
+    // seconds a client is told to wait when the queue is full
+    private static final int retryAfterSeconds = 1;
+
+    // largest population and number of generations a job may ask for, so one
+    // request cannot hold a worker (or its memory) for hours
+    static final int maxPopulationSize = 100000;
+    static final int maxGenerations = 100000;
+    // most rule-against-row tests an evolve job may ask for, counting every
+    // individual of every generation on every training row
+    static final long maxRowEvaluations = 10000000000L;
+    // longest an evolve job may run, in milliseconds
+    static final long maxJobMillis = 60000L;
+
+    private final File directory;
+    private final GAConfig baseConfig;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    // every instrument asked for, completed once it is loaded
+    private final ConcurrentHashMap<String, CompletableFuture<Instrument>> instruments =
+            new ConcurrentHashMap<String, CompletableFuture<Instrument>>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // the packed rows of a loaded instrument
+    static final class Instrument {
+        final String name;
+        final int rows;
+        final long[][] split;
+        final long loadMillis;
+
+        Instrument(String name, int rows, long[][] split, long loadMillis) {
+            this.name = name;
+            this.rows = rows;
+            this.split = split;
+            this.loadMillis = loadMillis;
+        }
+    }
+
+    // a job that answers with a JSON object
+    private interface Job {
+        String run(Map<String, String> parameters) throws IOException;
+    }
+
+    /**
+     * @param directory,  directory of the instruments' price files
+     * @param port,       port on the loopback address, 0 for any free port
+     * @param threads,    worker threads running jobs
+     * @param queue,      most jobs waiting for a worker
+     * @param baseConfig, GA parameters of a job unless the job sets them
+     * @throws IOException if the port cannot be bound
+     */
+    RuleService(File directory, int port, int threads, int queue, GAConfig baseConfig) throws IOException {
+        this.directory = directory;
+        this.baseConfig = baseConfig;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queue), new ThreadPoolExecutor.AbortPolicy());
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/evolve", jobHandler(new Job() {
+            @Override
+            public String run(Map<String, String> parameters) throws IOException {
+                return evolve(parameters);
+            }
+        }));
+        server.createContext("/evaluate", jobHandler(new Job() {
+            @Override
+            public String run(Map<String, String> parameters) throws IOException {
+                return evaluate(parameters);
+            }
+        }));
+        server.createContext("/load", jobHandler(new Job() {
+            @Override
+            public String run(Map<String, String> parameters) throws IOException {
+                return describe(instrument(parameters));
+            }
+        }));
+        server.createContext("/instruments", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, listInstruments());
+            }
+        });
+        server.createContext("/status", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, status());
+            }
+        });
+    }
+
+    // function that starts answering requests
+    void start() {
+        server.start();
+    }
+
+    // function that stops answering requests and drops the queued jobs
+    void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    // port the service listens on
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * function that returns the handler of a job: the job is put on the queue
+     * and answered by the worker that runs it, or refused with 503 if the queue
+     * is full
+     *
+     * @param job, work done for every request
+     * @return the handler
+     */
+    private HttpHandler jobHandler(Job job) {
+        return new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", "POST");
+                    respond(exchange, 405, error("use POST"));
+                    return;
+                }
+                Map<String, String> parameters;
+                try {
+                    parameters = parameters(exchange.getRequestURI().getRawQuery());
+                } catch (IllegalArgumentException e) {
+                    respond(exchange, 400, error(e.getMessage()));
+                    return;
+                }
+                try {
+                    workers.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            runJob(job, parameters, exchange);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    rejected.incrementAndGet();
+                    exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+                    respond(exchange, 503, error("job queue is full"));
+                }
+            }
+        };
+    }
+
+    // function that runs a job on a worker and sends its answer, or the error
+    // it failed with
+    private void runJob(Job job, Map<String, String> parameters, HttpExchange exchange) {
+        int status;
+        String body;
+        try {
+            body = job.run(parameters);
+            status = 200;
+            completed.incrementAndGet();
+        } catch (IllegalArgumentException e) {
+            body = error(e.getMessage());
+            status = 400;
+            failed.incrementAndGet();
+        } catch (FileNotFoundException e) {
+            body = error(e.getMessage());
+            status = 404;
+            failed.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            body = error(e.toString());
+            status = 500;
+            failed.incrementAndGet();
+        }
+        try {
+            respond(exchange, status, body);
+        } catch (IOException e) {
+            // the client has gone, nothing to answer
+        }
+    }
+
+    /**
+     * function that runs the GA on an instrument and returns its best rule
+     *
+     * @param parameters, instrument and optional seed, populationSize,
+     *                    generations, tournamentSize and timeBudgetMillis
+     * @return JSON object
+     * @throws IOException if the instrument cannot be loaded
+     */
+    private String evolve(Map<String, String> parameters) throws IOException {
+        Instrument instrument = instrument(parameters);
+        GAConfig.Builder builder = baseConfig.toBuilder();
+        if (parameters.containsKey("seed")) {
+            builder.seed(longParameter(parameters, "seed"));
+        }
+        if (parameters.containsKey("populationSize")) {
+            builder.populationSize(intParameter(parameters, "populationSize", 2, maxPopulationSize));
+        }
+        if (parameters.containsKey("generations")) {
+            builder.maxGenerations(intParameter(parameters, "generations", 0, maxGenerations));
+        }
+        if (parameters.containsKey("tournamentSize")) {
+            builder.tournamentSize(intParameter(parameters, "tournamentSize", 1, maxPopulationSize));
+        }
+        long budget = baseConfig.timeBudgetMillis > 0 ? Math.min(baseConfig.timeBudgetMillis, maxJobMillis)
+                : maxJobMillis;
+        if (parameters.containsKey("timeBudgetMillis")) {
+            budget = intParameter(parameters, "timeBudgetMillis", 1, (int) maxJobMillis);
+        }
+        builder.timeBudgetMillis(budget);
+        GAConfig config = builder.build();
+        if (instrument.split[0].length == 0) {
+            throw new IllegalArgumentException("no training rows in " + instrument.name);
+        }
+        // the first population is evaluated as well as one per generation
+        long evaluations = (long) config.populationSize * (config.maxGenerations + 1L) * instrument.split[0].length;
+        if (evaluations > maxRowEvaluations) {
+            throw new IllegalArgumentException("populationSize * (generations + 1) * " + instrument.split[0].length
+                    + " training rows must be at most " + maxRowEvaluations);
+        }
+        long start = System.nanoTime();
+        GA ga = new GA(config, instrument.split, null, config.seeded ? new Rng(config.seed) : Rng.unseeded());
+        GA.StopReason reason;
+        try {
+            reason = ga.run();
+        } finally {
+            ga.close();
+        }
+        int best = ga.best();
+        return "{\"instrument\":" + quote(instrument.name) + ",\"generations\":" + ga.generation
+                + ",\"stopReason\":" + quote(reason.name()) + ","
+                + ruleFields(ga.population[best], ga.fitness[best], instrument) + ",\"millis\":"
+                + (System.nanoTime() - start) / 1000000 + "}";
+    }
+
+    /**
+     * function that scores a given rule on an instrument
+     *
+     * @param parameters, instrument and the rule, packed or as bits
+     * @return JSON object
+     * @throws IOException if the instrument cannot be loaded
+     */
+    private String evaluate(Map<String, String> parameters) throws IOException {
+        Instrument instrument = instrument(parameters);
+        int genomeBits = baseConfig.registry.genomeBits();
+        long rule;
+        if (parameters.containsKey("bits")) {
+            String bits = parameters.get("bits");
+            if (bits.length() != genomeBits || !bits.matches("[01]+")) {
+                throw new IllegalArgumentException("bits must be " + genomeBits + " characters of 0 and 1");
+            }
+            rule = 0L;
+            for (int i = 0; i < genomeBits; i++) {
+                rule |= (long) (bits.charAt(i) - '0') << i;
+            }
+        } else {
+            rule = longParameter(parameters, "rule");
+            if (rule < 0 || (rule >>> genomeBits) != 0) {
+                throw new IllegalArgumentException("rule must fit in " + genomeBits + " bits");
+            }
+        }
+        double[] fitness = new double[1];
+        new RowScanEvaluator(instrument.split[0], baseConfig.registry.labelBit(), baseConfig.registry.pairMask())
+                .evaluate(new long[] { rule }, 1, fitness);
+        return "{\"instrument\":" + quote(instrument.name) + "," + ruleFields(rule, fitness[0], instrument) + "}";
+    }
+
+    // function that returns the JSON fields of a rule and its test metrics
+    private String ruleFields(long rule, double fitness, Instrument instrument) {
+        IndicatorRegistry registry = baseConfig.registry;
+        StringBuilder bits = new StringBuilder();
+        for (int i = 0; i < registry.genomeBits(); i++) {
+            bits.append(Rules.bit(rule, i));
+        }
+        int[] test = GA.testResult(rule, instrument.split[1], registry.labelBit(), registry.pairMask());
+        return "\"rule\":" + rule + ",\"bits\":" + quote(bits.toString()) + ",\"description\":"
+                + quote(registry.describe(rule)) + ",\"fitness\":" + number(fitness) + ",\"testInstances\":"
+                + test[0] + ",\"testCorrect\":" + test[1] + ",\"testAccuracy\":"
+                + (test[0] == 0 ? "null" : number((double) test[1] / test[0]));
+    }
+
+    /**
+     * function that returns a resident instrument, loading it on first use.
+     * Jobs asking for an instrument that is being loaded wait for that load
+     * rather than loading it again. The load runs on the first job's thread
+     * outside the map, so loads of other instruments are never held up; a
+     * failed load is forgotten so a later job can try again
+     *
+     * @param parameters, the instrument parameter
+     * @return the instrument
+     * @throws IOException if its price file cannot be read
+     */
+    private Instrument instrument(Map<String, String> parameters) throws IOException {
+        String name = parameters.get("instrument");
+        if (name == null || !instrumentName.matcher(name).matches()) {
+            throw new IllegalArgumentException("instrument must be a name of letters, digits, '.', '_' or '-'");
+        }
+        CompletableFuture<Instrument> future = instruments.get(name);
+        if (future == null) {
+            CompletableFuture<Instrument> loading = new CompletableFuture<Instrument>();
+            future = instruments.putIfAbsent(name, loading);
+            if (future == null) {
+                future = loading;
+                try {
+                    loading.complete(load(name));
+                } catch (IOException | RuntimeException e) {
+                    instruments.remove(name, loading);
+                    loading.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // function that returns the loaded instruments by name, leaving out any
+    // that are still loading
+    private TreeMap<String, Instrument> resident() {
+        TreeMap<String, Instrument> resident = new TreeMap<String, Instrument>();
+        for (Map.Entry<String, CompletableFuture<Instrument>> entry : instruments.entrySet()) {
+            CompletableFuture<Instrument> future = entry.getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                resident.put(entry.getKey(), future.join());
+            }
+        }
+        return resident;
+    }
+
+    /**
+     * function that loads the price file of an instrument and packs its rows
+     *
+     * @param name, instrument
+     * @return the instrument
+     * @throws IOException if its price file cannot be read
+     */
+    Instrument load(String name) throws IOException {
+        File file = new File(directory, name + ".csv");
+        if (!file.isFile()) {
+            throw new FileNotFoundException("no price file for instrument " + name);
+        }
+        long start = System.nanoTime();
+        PriceSeries series = PriceLoader.load(file);
+        FeatureMatrix features = Modelling.createInputData(series, baseConfig.registry);
+        long[] rows = features.packRows(0, features.rows);
+        int trainingSize = (int) Math.round(rows.length * baseConfig.training);
+        long[][] split = { Arrays.copyOfRange(rows, 0, trainingSize),
+                Arrays.copyOfRange(rows, trainingSize, rows.length) };
+        return new Instrument(name, rows.length, split, (System.nanoTime() - start) / 1000000);
+    }
+
+    // function that returns the JSON object of a resident instrument
+    private static String describe(Instrument instrument) {
+        return "{\"name\":" + quote(instrument.name) + ",\"rows\":" + instrument.rows + ",\"training\":"
+                + instrument.split[0].length + ",\"testing\":" + instrument.split[1].length + ",\"loadMillis\":"
+                + instrument.loadMillis + "}";
+    }
+
+    // function that lists the resident instruments and the price files that can
+    // be loaded
+    private String listInstruments() throws IOException {
+        StringBuilder json = new StringBuilder("{\"resident\":[");
+        boolean first = true;
+        for (Instrument instrument : resident().values()) {
+            json.append(first ? "" : ",").append(describe(instrument));
+            first = false;
+        }
+        json.append("],\"available\":[");
+        first = true;
+        for (File file : BatchModelling.instruments(directory)) {
+            String name = file.getName().substring(0, file.getName().length() - ".csv".length());
+            if (instrumentName.matcher(name).matches()) {
+                json.append(first ? "" : ",").append(quote(name));
+                first = false;
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    // function that returns the JSON object of the queue and job counts
+    private String status() {
+        return "{\"threads\":" + workers.getMaximumPoolSize() + ",\"active\":" + workers.getActiveCount()
+                + ",\"queued\":" + workers.getQueue().size() + ",\"queueCapacity\":"
+                + (workers.getQueue().size() + workers.getQueue().remainingCapacity()) + ",\"completed\":"
+                + completed.get() + ",\"failed\":" + failed.get() + ",\"rejected\":" + rejected.get()
+                + ",\"resident\":" + resident().size() + "}";
+    }
+
+    /**
+     * function that decodes the query string of a request
+     *
+     * @param query, raw query, or null
+     * @return the parameters by name
+     */
+    static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    // function that reads a whole number parameter
+    private static long longParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing parameter " + name);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+    }
+
+    /**
+     * function that reads a whole number parameter within a range
+     *
+     * @param parameters, the parameters of the request
+     * @param name,       name of the parameter
+     * @param min,        smallest value allowed
+     * @param max,        largest value allowed
+     * @return the value
+     */
+    private static int intParameter(Map<String, String> parameters, String name, int min, int max) {
+        long value = longParameter(parameters, name);
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max);
+        }
+        return (int) value;
+    }
+
+    // function that sends a JSON answer and closes the exchange
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // function that returns the JSON object of an error
+    private static String error(String message) {
+        return "{\"error\":" + quote(message == null ? "" : message) + "}";
+    }
+
+    // function that writes a number as JSON, null if it is not finite
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    // function that writes a string as a JSON string
+    static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    // Main that starts the service. Optional arguments: directory of the price
+    // files, port, worker threads, queue size, then instruments loaded before
+    // the first job
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args.length > 0 ? args[0] : ".");
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int queue = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        // one thread per GA, the jobs are spread over the cores instead
+        GAConfig config = Modelling.gaConfig(1).toBuilder().checkpoint(null, 1).build();
+        RuleService service = new RuleService(directory, port, threads, queue, config);
+        List<String> preload = Arrays.asList(args).subList(Math.min(4, args.length), args.length);
+        for (String name : preload) {
+            Map<String, String> parameters = new HashMap<String, String>();
+            parameters.put("instrument", name);
+            System.out.println("Loaded " + describe(service.instrument(parameters)));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                service.stop();
+            }
+        });
+        service.start();
+        System.out.println("Listening on http://127.0.0.1:" + service.port() + "/ with " + threads
+                + " workers and a queue of " + queue);
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Sequential covering. The GA is run once per rule; every accepted rule marks
+ * the training instances it covers as removed in a bitset, and the next run
+ * only scans the instances that are left, so the training data is never
+ * copied. Learning stops when the rule limit is reached, when enough of the
+ * training data is covered, or when the GA can no longer find a rule that
+ * covers anything. The rules form a decision list: an instance is predicted
+ * by the first rule that covers it, and by the majority label of the uncovered
+ * instances if none does.
+ */
+class RuleSetLearner {
+
+    private final long[][] split;
+    private final long[] trainingData;
+    private final long[] testingData;
+    private final GAConfig config;
+    private final int maxRules;
+    private final double targetCoverage;
+    private final Rng random;
+
+    // layout of the rules, from the indicator registry of the config
+    private final int labelBit;
+    private final long pairMask;
+
+    // bit r set while training row r is not covered by any rule
+    final long[] remaining;
+    int remainingCount;
+
+    // telemetry: listeners given to the GA of every round
+    final ArrayList<GenerationListener> listeners = new ArrayList<GenerationListener>();
+
+    // the learned rules, in order, and the label used when none covers
+    long[] rules = new long[0];
+    int defaultLabel = 0;
+
+    /**
+     * @param rows,           packed instances of the modelling class
+     * @param config,         parameters of every GA run, without a checkpoint
+     *                        file as the rounds are not checkpointed
+     * @param maxRules,       most rules learned
+     * @param targetCoverage, fraction of the training data after which learning
+     *                        stops
+     */
+    RuleSetLearner(long[] rows, GAConfig config, int maxRules, double targetCoverage) {
+        if (config.checkpointFile != null) {
+            throw new IllegalArgumentException("a rule list cannot be checkpointed");
+        }
+        this.split = GA.prepareData(rows, config.training);
+        this.trainingData = split[0];
+        this.testingData = split[1];
+        this.config = config;
+        this.maxRules = maxRules;
+        this.targetCoverage = targetCoverage;
+        this.random = config.seeded ? new Rng(config.seed) : Rng.unseeded();
+        this.labelBit = config.registry.labelBit();
+        this.pairMask = config.registry.pairMask();
+        this.remaining = new long[FeatureMatrix.words(trainingData.length)];
+        for (int r = 0; r < trainingData.length; r++) {
+            remaining[r >>> 6] |= 1L << r;
+        }
+        this.remainingCount = trainingData.length;
+    }
+
+    // function that learns the rule list and prints it with its test accuracy
+    void run() {
+        int target = (int) Math.ceil(trainingData.length * (1 - targetCoverage));
+        int count = 0;
+        rules = new long[maxRules];
+        while (count < maxRules && remainingCount > 0 && remainingCount > target) {
+            // built again every round, as the histogram only counts the rows
+            // remaining when it is built
+            GA ga = new GA(config, split, GA.cachedEvaluator(config, trainingData, remaining, config.threads), random);
+            ga.listeners.addAll(listeners);
+            try {
+                ga.run();
+            } finally {
+                ga.close();
+            }
+            int best = ga.best();
+            if (ga.fitness[best] <= 0.0) {
+                break;
+            }
+            int removed = removeCovered(ga.population[best]);
+            if (removed == 0) {
+                break;
+            }
+            rules[count] = ga.population[best];
+            count++;
+            System.out.println("Rule " + count + ": " + config.registry.describe(ga.population[best]));
+            System.out.println("Fitness: " + ga.fitness[best] + ", covers " + removed + " training instances");
+        }
+        rules = Arrays.copyOf(rules, count);
+        defaultLabel = majorityLabel();
+        System.out.println("Default: THEN " + (defaultLabel == 1 ? "YES" : "NO"));
+        accuracy();
+    }
+
+    /**
+     * function that clears the remaining bit of every training row the rule
+     * covers
+     * 
+     * @param rule, packed rule
+     * @return number of rows removed
+     */
+    private int removeCovered(long rule) {
+        int removed = 0;
+        for (int w = 0; w < remaining.length; w++) {
+            long word = remaining[w];
+            while (word != 0) {
+                long bit = word & -word;
+                word ^= bit;
+                int r = (w << 6) + Long.numberOfTrailingZeros(bit);
+                if (Rules.covers(rule, trainingData[r], pairMask)) {
+                    remaining[w] &= ~bit;
+                    removed++;
+                }
+            }
+        }
+        remainingCount -= removed;
+        return removed;
+    }
+
+    // function that returns the most common label of the uncovered training
+    // rows, or of all the training rows if every row is covered
+    private int majorityLabel() {
+        int yes = 0;
+        int total = 0;
+        for (int r = 0; r < trainingData.length; r++) {
+            if (remainingCount == 0 || (remaining[r >>> 6] >>> r & 1L) != 0) {
+                yes += Rules.bit(trainingData[r], labelBit);
+                total++;
+            }
+        }
+        return 2 * yes > total ? 1 : 0;
+    }
+
+    /**
+     * function that predicts an instance with the rule list
+     * 
+     * @param instance, packed instance
+     * @return 0/1 for NO/YES
+     */
+    int predict(long instance) {
+        for (long rule : rules) {
+            if (Rules.covers(rule, instance, pairMask)) {
+                return Rules.bit(rule, labelBit);
+            }
+        }
+        return defaultLabel;
+    }
+
+    // function that displays the accuracy of the rule list on the test data
+    private void accuracy() {
+        int correctPredictions = 0;
+        for (long line : testingData) {
+            if (predict(line) == Rules.bit(line, labelBit)) {
+                correctPredictions++;
+            }
+        }
+        System.out.println("Rules: " + rules.length);
+        System.out.println("Instances: " + testingData.length);
+        if (testingData.length > 0) {
+            System.out.println("Accuracy: " + (double) correctPredictions / testingData.length);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Packed representation of rules and instances used by the GA.
+ *
+ * Bit i of a packed value holds what element i of the old int[] representation
+ * held: every feature takes a pair of bits (bit 2f for TRUE, bit 2f + 1 for
+ * FALSE) and the bit after the last pair is the YES/NO label. A rule pair of 11
+ * is a wildcard and a rule pair of 00 never covers anything, exactly like the
+ * old pair-by-pair loop in covers().
+ */
+final class Rules {
+
+    // mask with the first bit of each of the six feature pairs set
+    static final long PAIR_MASK = pairMask(6);
+
+    private Rules() {
+    }
+
+    /**
+     * function that builds the mask with the first bit of every feature pair set
+     *
+     * @param features, number of features (pairs) in the word
+     * @return mask of the even bits below 2 * features
+     */
+    static long pairMask(int features) {
+        long mask = 0L;
+        for (int i = 0; i < features && i < 32; i++) {
+            mask |= 1L << (2 * i);
+        }
+        return mask;
+    }
+
+    /**
+     * function that checks if a packed rule covers a packed instance. For every
+     * pair the rule and instance must share a set bit, unless the rule pair is a
+     * wildcard, which is decided for all pairs at once with a few mask operations
+     *
+     * @param rule,     packed rule
+     * @param instance, packed instance
+     * @param pairMask, mask with the first bit of every feature pair set
+     * @return boolean, true if covers, false otherwise
+     */
+    static boolean covers(long rule, long instance, long pairMask) {
+        long both = rule & instance;
+        long matched = both | (both >>> 1) | (rule & (rule >>> 1));
+        return (matched & pairMask) == pairMask;
+    }
+
+    /**
+     * function that returns a single bit of a packed value
+     *
+     * @param packed, packed rule or instance
+     * @param bit,    index of the bit
+     * @return 0 or 1
+     */
+    static int bit(long packed, int bit) {
+        return (int) (packed >>> bit) & 1;
+    }
+
+    /**
+     * function that packs an instance from the modelling output, one int per
+     * feature followed by the label, into the one-hot pair representation
+     *
+     * @param line,     array of 0's and 1's, features followed by the label
+     * @param features, number of features in the line
+     * @return packed instance
+     */
+    static long packInstance(int[] line, int features) {
+        long packed = 0L;
+        for (int j = 0; j < features; j++) {
+            if (line[j] == 1) {
+                packed |= 1L << (2 * j);
+            } else {
+                packed |= 1L << (2 * j + 1);
+            }
+        }
+        if (line[features] == 1) {
+            packed |= 1L << (2 * features);
+        }
+        return packed;
+    }
+
+    /**
+     * function that packs the feature bits of the indicator engine and a label
+     * into the one-hot pair representation
+     *
+     * @param featureBits, bit f set if feature f is true
+     * @param features,    number of features
+     * @param label,       0/1 for decrease/increase
+     * @return packed instance
+     */
+    static long packFeatures(long featureBits, int features, int label) {
+        long packed = 0L;
+        for (int f = 0; f < features; f++) {
+            packed |= 1L << (2 * f + 1 - (int) (featureBits >>> f & 1L));
+        }
+        return packed | (long) (label & 1) << (2 * features);
+    }
+}
@@ -0,0 +1,311 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Significance of evolved rules on the test period. A single test accuracy says
+ * nothing about how much it could vary, so every rule is resampled thousands of
+ * times:
+ *
+ * - a circular block bootstrap of the test rows gives a confidence interval
+ * for the accuracy. Blocks of blockLength consecutive rows are drawn with
+ * replacement so the autocorrelation of the prices is kept inside a block;
+ * - a block permutation of the labels gives a p-value for the null hypothesis
+ * that the rule's predictions are unrelated to the labels: the rows the rule
+ * covers stay put while blocks of labels are shuffled under them. Whole blocks
+ * are moved, the short last block included, and laid end to end, so every
+ * label is used exactly once.
+ *
+ * The test rows are never copied. The covered and correct rows of a rule are
+ * turned into prefix sums once, so a bootstrap resample costs one lookup per
+ * block, and a permutation only reads the labels of the covered rows through
+ * the shuffled block indices. The resamples are split into fixed chunks, each
+ * with its own random numbers split off in order, and run on a ForkJoinPool,
+ * so the results depend on the seed but not on the number of threads.
+ */
+class SignificanceTest {
+
+    // two-sided confidence level of the accuracy interval
+    static final double confidence = 0.95;
+
+    // resamples per task, and per split-off random generator
+    private static final int chunkSize = 64;
+
+    private final long[] rows;
+    private final int labelBit;
+    private final long pairMask;
+    private final int resamples;
+    private final int blockLength;
+    private final int blocks;
+    private final ForkJoinPool pool;
+
+    // per rule: prefix sums of the covered and correctly predicted rows, the
+    // covered rows, and bit r of matching set if row r has the rule's label
+    private final int[] coveredPrefix;
+    private final int[] correctPrefix;
+    private final int[] coveredRows;
+    private final long[] matching;
+    private int covered;
+
+    // accuracy of every bootstrap resample (NaN if it covers nothing) and
+    // correct predictions of every permutation
+    private final double[] bootstrap;
+    private final int[] permuted;
+
+    // result of the significance test of one rule
+    static final class Result {
+        final long rule;
+        final int instances;
+        final int correct;
+        final double accuracy;
+        final double low;
+        final double high;
+        final double pValue;
+
+        Result(long rule, int instances, int correct, double accuracy, double low, double high, double pValue) {
+            this.rule = rule;
+            this.instances = instances;
+            this.correct = correct;
+            this.accuracy = accuracy;
+            this.low = low;
+            this.high = high;
+            this.pValue = pValue;
+        }
+    }
+
+    /**
+     * @param rows,        packed test instances, in time order
+     * @param labelBit,    index of the YES/NO bit
+     * @param pairMask,    mask with the first bit of every feature pair set
+     * @param resamples,   bootstrap resamples and permutations per rule
+     * @param blockLength, consecutive rows kept together when resampling
+     * @param threads,     number of worker threads
+     */
+    SignificanceTest(long[] rows, int labelBit, long pairMask, int resamples, int blockLength, int threads) {
+        if (resamples < 1 || blockLength < 1) {
+            throw new IllegalArgumentException("need at least one resample and a block length of at least 1");
+        }
+        this.rows = rows;
+        this.labelBit = labelBit;
+        this.pairMask = pairMask;
+        this.resamples = resamples;
+        this.blockLength = Math.min(blockLength, Math.max(1, rows.length));
+        this.blocks = (rows.length + this.blockLength - 1) / this.blockLength;
+        this.pool = new ForkJoinPool(threads);
+        this.coveredPrefix = new int[rows.length + 1];
+        this.correctPrefix = new int[rows.length + 1];
+        this.coveredRows = new int[rows.length];
+        this.matching = new long[FeatureMatrix.words(rows.length)];
+        this.bootstrap = new double[resamples];
+        this.permuted = new int[resamples];
+    }
+
+    /**
+     * function that tests one rule
+     *
+     * @param rule,   packed rule
+     * @param random, random numbers, split once per chunk of resamples
+     * @return the accuracy of the rule, its confidence interval and p-value, or
+     *         NaN for all three if it covers no test row
+     */
+    Result test(long rule, Rng random) {
+        int ruleLabel = Rules.bit(rule, labelBit);
+        covered = 0;
+        Arrays.fill(matching, 0L);
+        for (int r = 0; r < rows.length; r++) {
+            boolean covers = Rules.covers(rule, rows[r], pairMask);
+            boolean match = Rules.bit(rows[r], labelBit) == ruleLabel;
+            if (match) {
+                matching[r >>> 6] |= 1L << r;
+            }
+            if (covers) {
+                coveredRows[covered++] = r;
+            }
+            coveredPrefix[r + 1] = coveredPrefix[r] + (covers ? 1 : 0);
+            correctPrefix[r + 1] = correctPrefix[r] + (covers && match ? 1 : 0);
+        }
+        int correct = correctPrefix[rows.length];
+        if (covered == 0) {
+            return new Result(rule, 0, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        int chunks = (resamples + chunkSize - 1) / chunkSize;
+        Rng[] chunkRandom = new Rng[chunks];
+        for (int c = 0; c < chunks; c++) {
+            chunkRandom[c] = random.split();
+        }
+        pool.invoke(new ResampleTask(chunkRandom, 0, chunks));
+
+        double[] sorted = Arrays.copyOf(bootstrap, resamples);
+        Arrays.sort(sorted);
+        // NaN (resamples covering nothing) sorts last
+        int defined = resamples;
+        while (defined > 0 && Double.isNaN(sorted[defined - 1])) {
+            defined--;
+        }
+        double tail = (1 - confidence) / 2;
+        double low = defined > 0 ? percentile(sorted, defined, tail) : Double.NaN;
+        double high = defined > 0 ? percentile(sorted, defined, 1 - tail) : Double.NaN;
+        int asGood = 0;
+        for (int i = 0; i < resamples; i++) {
+            if (permuted[i] >= correct) {
+                asGood++;
+            }
+        }
+        double pValue = (asGood + 1) / (double) (resamples + 1);
+        return new Result(rule, covered, correct, (double) correct / covered, low, high, pValue);
+    }
+
+    // task that runs a range of chunks, splitting it until one is left
+    private class ResampleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Rng[] chunkRandom;
+        private final int from;
+        private final int to;
+
+        ResampleTask(Rng[] chunkRandom, int from, int to) {
+            this.chunkRandom = chunkRandom;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    resample(from, chunkRandom[from]);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ResampleTask(chunkRandom, from, mid), new ResampleTask(chunkRandom, mid, to));
+            }
+        }
+    }
+
+    /**
+     * function that runs the bootstrap resamples and permutations of one chunk
+     *
+     * @param chunk,  index of the chunk
+     * @param random, random numbers of the chunk
+     */
+    private void resample(int chunk, Rng random) {
+        int n = rows.length;
+        int[] order = new int[blocks];
+        int end = Math.min(resamples, (chunk + 1) * chunkSize);
+        for (int i = chunk * chunkSize; i < end; i++) {
+            // bootstrap: blocks drawn with replacement from any start, wrapping
+            // round the end of the test period
+            int sampledCovered = 0;
+            int sampledCorrect = 0;
+            for (int b = 0; b < blocks; b++) {
+                int length = Math.min(blockLength, n - b * blockLength);
+                int start = random.nextInt(n);
+                sampledCovered += sum(coveredPrefix, start, length);
+                sampledCorrect += sum(correctPrefix, start, length);
+            }
+            bootstrap[i] = sampledCovered > 0 ? (double) sampledCorrect / sampledCovered : Double.NaN;
+
+            // permutation: the blocks of labels are laid end to end in the
+            // shuffled order, and the covered rows read the labels now under them
+            for (int b = 0; b < blocks; b++) {
+                order[b] = b;
+            }
+            for (int b = blocks - 1; b > 0; b--) {
+                int j = random.nextInt(b + 1);
+                int swap = order[b];
+                order[b] = order[j];
+                order[j] = swap;
+            }
+            int count = 0;
+            int k = 0;
+            int position = 0;
+            for (int b = 0; b < blocks && k < covered; b++) {
+                int source = order[b] * blockLength;
+                int blockEnd = position + Math.min(blockLength, n - source);
+                for (; k < covered && coveredRows[k] < blockEnd; k++) {
+                    int label = source + coveredRows[k] - position;
+                    count += (int) (matching[label >>> 6] >>> label & 1L);
+                }
+                position = blockEnd;
+            }
+            permuted[i] = count;
+        }
+    }
+
+    // function that sums length values from start of the series behind a prefix
+    // sum, wrapping round the end
+    private static int sum(int[] prefix, int start, int length) {
+        int n = prefix.length - 1;
+        int end = start + length;
+        if (end <= n) {
+            return prefix[end] - prefix[start];
+        }
+        return prefix[n] - prefix[start] + prefix[end - n];
+    }
+
+    // function that returns a percentile of the first count sorted values
+    private static double percentile(double[] sorted, int count, double fraction) {
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    // function that releases the worker threads
+    void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * function that prints the result of a test
+     *
+     * @param result,   result of test()
+     * @param registry, indicators the rule is over
+     */
+    void print(Result result, IndicatorRegistry registry) {
+        System.out.println("Rule: " + registry.describe(result.rule));
+        System.out.println("Instances: " + result.instances);
+        if (result.instances == 0) {
+            System.out.println("Not tested, the rule covers no test instance");
+            return;
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "Accuracy: %.4f, %.0f%% interval [%.4f, %.4f], p-value %.4f (%d resamples, blocks of %d)",
+                result.accuracy, 100 * confidence, result.low, result.high, result.pValue, resamples,
+                blockLength));
+    }
+
+    // Main that learns a rule (or a rule list) and tests every rule on the test
+    // period. Optional arguments: resamples, block length, number of threads,
+    // most rules in a rule list
+    public static void main(String[] args) {
+        Modelling model = new Modelling(new File("PriceData.csv"), new File("PriceData.features"));
+        int resamples = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int blockLength = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int maxRules = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        GAConfig config = Modelling.gaConfig(threads).toBuilder().checkpoint(null, 1).build();
+        long[][] split = GA.prepareData(model.getRows(), config.training);
+        long[] rules;
+        if (maxRules > 0) {
+            RuleSetLearner learner = new RuleSetLearner(model.getRows(), config, maxRules, 0.95);
+            learner.run();
+            rules = learner.rules;
+        } else {
+            GA ga = new GA(config, split, null, config.seeded ? new Rng(config.seed) : Rng.unseeded());
+            ga.run();
+            ga.close();
+            rules = new long[] { ga.population[ga.best()] };
+        }
+        // a stream of its own, so testing does not change what the GA draws
+        Rng random = config.seeded ? new Rng(Rng.streamSeed(config.seed, 0)) : Rng.unseeded();
+        SignificanceTest test = new SignificanceTest(split[1], config.registry.labelBit(),
+                config.registry.pairMask(), resamples, blockLength, threads);
+        long start = System.nanoTime();
+        for (long rule : rules) {
+            test.print(test.test(rule, random), config.registry);
+        }
+        System.out.println("Tested " + rules.length + " rules in " + (System.nanoTime() - start) / 1000000 + " ms");
+        test.close();
+    }
+}
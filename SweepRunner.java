@@ -0,0 +1,226 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hyper-parameter sweep. The features are built (or read from the feature
+ * file) and packed once, and every GA configuration of a grid or of a random
+ * search then runs against the same read-only arrays on a bounded pool of
+ * threads. Every run gets a seed derived from the sweep seed and its position
+ * in the sweep, so a sweep gives the same table whatever the number of threads.
+ * 
+ * Usage: java SweepRunner [threads] [random N] [seed]
+ * 
+ * Without "random N" the full grid is run.
+ */
+class SweepRunner {
+
+    // the grid, and the ranges random configurations are drawn from
+    static final int[] populationSizes = { 50, 100, 200, 400 };
+    static final int[] tournamentSizes = { 2, 3, 5, 7 };
+    static final double[] mutationProbabilities = { 0.05, 0.1, 0.2, 0.3 };
+    static final double[] crossoverProbabilities = { 0.6, 0.7, 0.8, 0.9 };
+
+    // result of one GA run
+    static class Result {
+        final int run;
+        final GAConfig config;
+        final long rule;
+        final double fitness;
+        final int testInstances;
+        final int testCorrect;
+        final long millis;
+
+        Result(int run, GAConfig config, long rule, double fitness, int testInstances, int testCorrect,
+                long millis) {
+            this.run = run;
+            this.config = config;
+            this.rule = rule;
+            this.fitness = fitness;
+            this.testInstances = testInstances;
+            this.testCorrect = testCorrect;
+            this.millis = millis;
+        }
+
+        double testAccuracy() {
+            return testInstances == 0 ? 0.0 : (double) testCorrect / testInstances;
+        }
+    }
+
+    private final long[][] split;
+    private final int threads;
+
+    /**
+     * @param split,   packed training data followed by packed testing data,
+     *                 shared by every run and never written
+     * @param threads, number of runs done at the same time
+     */
+    SweepRunner(long[][] split, int threads) {
+        this.split = split;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int samples = args.length > 2 && args[1].equals("random") ? Integer.parseInt(args[2]) : 0;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42L;
+
+        Modelling model = new Modelling(new File("PriceData.csv"), new File("PriceData.features"));
+        GAConfig base = GAConfig.builder().build();
+        long[][] split = GA.prepareData(model.getRows(), base.training);
+        List<GAConfig> configs = samples > 0 ? random(base, samples, seed) : grid(base, seed);
+
+        SweepRunner runner = new SweepRunner(split, threads);
+        long start = System.nanoTime();
+        List<Result> results = runner.run(configs);
+        print(results, 20);
+        System.out.println(results.size() + " runs in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * function that builds every valid configuration of the grid
+     * 
+     * @param base, parameters not swept
+     * @param seed, seed of the sweep
+     * @return configurations, each with its own seed
+     */
+    static List<GAConfig> grid(GAConfig base, long seed) {
+        List<GAConfig> configs = new ArrayList<GAConfig>();
+        for (int populationSize : populationSizes) {
+            for (int tournamentSize : tournamentSizes) {
+                for (double mutation : mutationProbabilities) {
+                    for (double crossover : crossoverProbabilities) {
+                        if (tournamentSize > populationSize || mutation + crossover > 1.0) {
+                            continue;
+                        }
+                        configs.add(base.toBuilder().populationSize(populationSize).tournamentSize(tournamentSize)
+                                .mutationProbability(mutation).crossoverProbability(crossover)
+                                .seed(Rng.streamSeed(seed, configs.size())).threads(1).build());
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * function that draws configurations at random from the ranges of the grid
+     * 
+     * @param base,    parameters not swept
+     * @param samples, number of configurations
+     * @param seed,    seed of the sweep
+     * @return configurations, each with its own seed
+     */
+    static List<GAConfig> random(GAConfig base, int samples, long seed) {
+        Rng random = new Rng(seed);
+        List<GAConfig> configs = new ArrayList<GAConfig>(samples);
+        int minPopulation = populationSizes[0];
+        int maxPopulation = populationSizes[populationSizes.length - 1];
+        for (int i = 0; i < samples; i++) {
+            int populationSize = minPopulation + random.nextInt(maxPopulation - minPopulation + 1);
+            int tournamentSize = 2 + random.nextInt(tournamentSizes[tournamentSizes.length - 1] - 1);
+            double mutation = random.nextDouble() * 0.5;
+            double crossover = random.nextDouble() * (1.0 - mutation);
+            configs.add(base.toBuilder().populationSize(populationSize).tournamentSize(tournamentSize)
+                    .mutationProbability(mutation).crossoverProbability(crossover).seed(Rng.streamSeed(seed, i))
+                    .threads(1).build());
+        }
+        return configs;
+    }
+
+    /**
+     * function that runs every configuration on a pool of threads with a bounded
+     * queue; when the queue is full the submitting thread runs the next
+     * configuration itself, so no more than a few runs are ever waiting
+     * 
+     * @param configs, configurations to run
+     * @return results, best first
+     */
+    List<Result> run(List<GAConfig> configs) throws InterruptedException, ExecutionException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(configs.size());
+        try {
+            for (int i = 0; i < configs.size(); i++) {
+                final int run = i;
+                final GAConfig config = configs.get(i);
+                futures.add(executor.submit(new Callable<Result>() {
+                    @Override
+                    public Result call() {
+                        return runOne(run, config);
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<Result>(configs.size());
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+            rank(results);
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * function that runs the GA for one configuration
+     * 
+     * @param run,    position of the run
+     * @param config, parameters of the run
+     * @return result of the run
+     */
+    Result runOne(int run, GAConfig config) {
+        long start = System.nanoTime();
+        GA ga = new GA(config, split, GA.cachedEvaluator(config, split[0], null, 1), new Rng(config.seed));
+        ga.run();
+        ga.close();
+        int best = ga.best();
+        int[] test = ga.testResult(ga.population[best]);
+        return new Result(run, config, ga.population[best], ga.fitness[best], test[0], test[1],
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    // function that sorts results by training fitness, then test accuracy, then
+    // position, best first
+    static void rank(List<Result> results) {
+        Collections.sort(results, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                int c = Double.compare(b.fitness, a.fitness);
+                if (c == 0) {
+                    c = Double.compare(b.testAccuracy(), a.testAccuracy());
+                }
+                if (c == 0) {
+                    c = Integer.compare(a.run, b.run);
+                }
+                return c;
+            }
+        });
+    }
+
+    /**
+     * function that prints the ranked results as a table
+     * 
+     * @param results, ranked results
+     * @param limit,   most rows printed
+     */
+    static void print(List<Result> results, int limit) {
+        System.out.println(String.format(Locale.ROOT, "%4s %5s %10s %10s %8s %8s %10s %10s %9s %8s", "rank", "run",
+                "population", "tournament", "mutation", "cross", "fitness", "instances", "accuracy", "ms"));
+        for (int i = 0; i < Math.min(limit, results.size()); i++) {
+            Result r = results.get(i);
+            System.out.println(String.format(Locale.ROOT, "%4d %5d %10d %10d %8.3f %8.3f %10.6f %10d %9.4f %8d",
+                    i + 1, r.run, r.config.populationSize, r.config.tournamentSize, r.config.mutationProbability,
+                    r.config.crossoverProbability, r.fitness, r.testInstances, r.testAccuracy(), r.millis));
+        }
+    }
+}
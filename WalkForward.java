@@ -0,0 +1,124 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Walk-forward backtest. A training window and the test window after it slide
+ * across the price series; at every step the GA is retrained on the training
+ * window, starting from the final population of the previous window, and its
+ * best rule is scored on the test window. The indicator engine only ever moves
+ * forward: as the windows advance, the new days are pushed through it and
+ * their rows are appended, so no feature is worked out twice.
+ * 
+ * Usage: java WalkForward [trainDays] [testDays] [stepDays] [threads]
+ */
+class WalkForward {
+
+    private final PriceSeries series;
+    private final GAConfig config;
+    private final int trainDays;
+    private final int testDays;
+    private final int stepDays;
+    private final Rng random;
+
+    // the indicator engine, the next day to push through it, and the packed
+    // rows built so far
+    private final FeatureEngine engine;
+    private final long[] featureWords;
+    private int nextDay = 0;
+    private long[] rows = new long[1024];
+    private int rowCount = 0;
+
+    // totals over every test window
+    int windows = 0;
+    int testInstances = 0;
+    int testCorrect = 0;
+
+    /**
+     * @param series,    the price series
+     * @param config,    parameters of every GA run
+     * @param trainDays, rows in a training window
+     * @param testDays,  rows in a test window
+     * @param stepDays,  rows the windows move forward at every step
+     */
+    WalkForward(PriceSeries series, GAConfig config, int trainDays, int testDays, int stepDays) {
+        if (trainDays < 1 || testDays < 1 || stepDays < 1) {
+            throw new IllegalArgumentException("window sizes and step must be positive");
+        }
+        this.series = series;
+        this.config = config;
+        this.trainDays = trainDays;
+        this.testDays = testDays;
+        this.stepDays = stepDays;
+        this.random = config.seeded ? new Rng(config.seed) : Rng.unseeded();
+        this.engine = config.registry.engine();
+        this.featureWords = new long[FeatureMatrix.words(config.registry.features())];
+    }
+
+    public static void main(String[] args) throws IOException {
+        int trainDays = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int testDays = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int stepDays = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        // every window is a fresh run, so a checkpoint would only be overwritten
+        GAConfig config = Modelling.gaConfig(threads).toBuilder().checkpoint(null, 1).build();
+        PriceSeries series = PriceLoader.load(new File("PriceData.csv"));
+        new WalkForward(series, config, trainDays, testDays, stepDays).run();
+    }
+
+    // function that walks the windows across the series, printing every window
+    // and the totals
+    void run() {
+        System.out.println(String.format(Locale.ROOT, "%6s %6s %6s %10s %10s %9s  %s", "window", "train", "test",
+                "fitness", "instances", "accuracy", "rule"));
+        long[] previous = null;
+        for (int start = 0; ensureRows(start + trainDays + testDays); start += stepDays) {
+            long[][] split = { Arrays.copyOfRange(rows, start, start + trainDays),
+                    Arrays.copyOfRange(rows, start + trainDays, start + trainDays + testDays) };
+            GA ga = new GA(config, split, null, random, previous);
+            ga.run();
+            int best = ga.best();
+            int[] test = ga.testResult(ga.population[best]);
+            previous = ga.population.clone();
+            ga.close();
+
+            windows++;
+            testInstances += test[0];
+            testCorrect += test[1];
+            System.out.println(String.format(Locale.ROOT, "%6d %6d %6d %10.6f %10d %9s  %s", windows, start,
+                    start + trainDays, ga.fitness[best], test[0],
+                    test[0] == 0 ? "-" : String.format(Locale.ROOT, "%.4f", (double) test[1] / test[0]),
+                    config.registry.describe(ga.population[best])));
+        }
+        System.out.println("Windows: " + windows);
+        System.out.println("Instances: " + testInstances);
+        if (testInstances > 0) {
+            System.out.println("Accuracy: " + (double) testCorrect / testInstances);
+        }
+    }
+
+    /**
+     * function that pushes new days through the indicator engine until there are
+     * enough rows, appending a packed row for every day that has features and a
+     * known outcome
+     * 
+     * @param needed, number of rows wanted
+     * @return true if the series had enough days
+     */
+    private boolean ensureRows(int needed) {
+        while (rowCount < needed && nextDay < series.size()) {
+            int day = nextDay++;
+            boolean ready = engine.update(series.price(day), featureWords);
+            // rows start on the same day as in Modelling.createInputData
+            if (!ready || day + 1 < 2 * Modelling.numDays || series.increase(day) < 0) {
+                continue;
+            }
+            if (rowCount == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            rows[rowCount++] = Rules.packFeatures(featureWords[0], engine.features(), series.increase(day));
+        }
+        return rowCount >= needed;
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * JMH benchmarks of scoring a population against the training rows with each
+ * evaluator, and of the selection and the whole generation of the GA. Only the
+ * evaluator or GA of the benchmark being run is built, in the trial set-up.
+ * The column evaluator uses the vector kernel when it is on the class path and
+ * the JVM runs with --add-modules jdk.incubator.vector, as in 'java Benchmarks'.
+ *
+ * The row scan benchmarks (serial, parallel, tournamentSelection and
+ * generation) do rows * population rule tests per operation; as in 'java
+ * Benchmarks', leave out the largest combinations with -p, for example
+ * -p rows=1000000 -p population=100.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluationBenchmarks {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    @Param({ "100", "1000", "10000" })
+    public int population;
+
+    private Callable<Long> operation;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws Exception {
+        String method = Fixtures.method(params.getBenchmark());
+        String name;
+        switch (method) {
+        case "serial":
+        case "parallel":
+        case "columns":
+        case "histogram":
+            name = "evaluate." + method;
+            break;
+        default:
+            name = method;
+        }
+        operation = Fixtures.operation(name, rows, population);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.close(operation);
+    }
+
+    @Benchmark
+    public long serial() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long parallel() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long columns() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long histogram() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long tournamentSelection() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long generation() throws Exception {
+        return operation.call();
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+/**
+ * Bridge to the benchmarks of Benchmarks.java. JMH only generates benchmarks
+ * for classes in a named package, and a named package cannot refer to the
+ * classes of the default package, so the operations are built through
+ * Benchmarks.fixture() by reflection and run as plain Callables. The work timed
+ * is exactly that of 'java Benchmarks'.
+ */
+final class Fixtures {
+
+    private static final Method fixture = fixtureMethod();
+
+    private Fixtures() {
+    }
+
+    /**
+     * function that builds the operation of one benchmark, on a synthetic
+     * series of its own
+     *
+     * @param name,       name of the benchmark in Benchmarks.java
+     * @param rows,       number of days in the synthetic series
+     * @param population, population size, for the evaluation benchmarks
+     * @return the operation; it is also AutoCloseable and is closed by close()
+     * @throws Exception if the operation cannot be built
+     */
+    @SuppressWarnings("unchecked")
+    static Callable<Long> operation(String name, int rows, int population) throws Exception {
+        try {
+            return (Callable<Long>) fixture.invoke(null, name, rows, population);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // function that releases what an operation holds, such as evaluator threads
+    static void close(Callable<Long> operation) throws Exception {
+        if (operation != null) {
+            ((AutoCloseable) operation).close();
+        }
+    }
+
+    // function that returns the name of the benchmark method being run
+    static String method(String benchmark) {
+        return benchmark.substring(benchmark.lastIndexOf('.') + 1);
+    }
+
+    private static Method fixtureMethod() {
+        try {
+            Method method = Class.forName("Benchmarks").getDeclaredMethod("fixture", String.class, int.class,
+                    int.class);
+            method.setAccessible(true);
+            return method;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Benchmarks.fixture is missing from the class path", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * JMH benchmarks of the work done once per price series: loading the prices,
+ * building the features and matching one rule against every row. Only the
+ * operation of the benchmark being run is built, in the trial set-up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeriesBenchmarks {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int rows;
+
+    private Callable<Long> operation;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) throws Exception {
+        String method = Fixtures.method(params.getBenchmark());
+        String name;
+        switch (method) {
+        case "indicatorEnginePush":
+            name = "IndicatorEngine.push";
+            break;
+        case "indicatorEngineUpdate":
+            name = "IndicatorEngine.update";
+            break;
+        case "featureEngineUpdate":
+            name = "FeatureEngine.update";
+            break;
+        case "rsi":
+        case "bollinger":
+        case "macd":
+            name = "indicator." + method;
+            break;
+        default:
+            name = method;
+        }
+        operation = Fixtures.operation(name, rows, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Fixtures.close(operation);
+    }
+
+    @Benchmark
+    public long populatePriceData() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long createInputData() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long indicatorEnginePush() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long indicatorEngineUpdate() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long featureEngineUpdate() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long rsi() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long bollinger() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long macd() throws Exception {
+        return operation.call();
+    }
+
+    @Benchmark
+    public long covers() throws Exception {
+        return operation.call();
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Runs every test under test/ in one JVM and exits with status 1 if any check
+ * failed.
+ */
+class AllTests {
+
+    public static void main(String[] args) {
+        RulesTest.run();
+        EvaluatorTest.run();
+        CheckpointTest.run();
+        NonDominatedSorterTest.run();
+        ExactSearchTest.run();
+        OperatorsTest.run();
+        ResamplingTest.run();
+        Check.exit();
+    }
+}
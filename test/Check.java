@@ -0,0 +1,80 @@
+import java.util.Random;
+
+/**
+ * Assertions and random data for the tests under test/. The tests are plain
+ * programs so they build and run with nothing but the JDK: a failed check is
+ * printed and counted, and exit() ends the program with status 1 if any
+ * check failed.
+ */
+final class Check {
+
+    private static int passed = 0;
+    private static int failed = 0;
+
+    private Check() {
+    }
+
+    /**
+     * function that records a check
+     *
+     * @param condition, true if the check passed
+     * @param message,   what was checked, printed if it failed
+     */
+    static void that(boolean condition, String message) {
+        if (condition) {
+            passed++;
+        } else {
+            failed++;
+            System.out.println("FAILED: " + message);
+        }
+    }
+
+    // function that checks two whole numbers are equal
+    static void equal(long expected, long actual, String message) {
+        that(expected == actual, message + ": expected " + expected + " but was " + actual);
+    }
+
+    // function that checks two doubles are exactly equal
+    static void equal(double expected, double actual, String message) {
+        that(Double.compare(expected, actual) == 0, message + ": expected " + expected + " but was " + actual);
+    }
+
+    // function that prints the totals and exits, with status 1 if a check failed
+    static void exit() {
+        System.out.println(passed + " checks passed, " + failed + " failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * function that draws packed instances that are one-hot in every pair, with
+     * the label after the last pair
+     *
+     * @param random,   random numbers
+     * @param count,    number of rows
+     * @param features, number of features
+     * @return packed rows
+     */
+    static long[] randomRows(Random random, int count, int features) {
+        long[] rows = new long[count];
+        for (int r = 0; r < count; r++) {
+            rows[r] = Rules.packFeatures(random.nextLong(), features, random.nextInt(2));
+        }
+        return rows;
+    }
+
+    /**
+     * function that draws rules with every bit of the genome random
+     *
+     * @param random,     random numbers
+     * @param count,      number of rules
+     * @param genomeBits, number of bits in a rule
+     * @return packed rules
+     */
+    static long[] randomRules(Random random, int count, int genomeBits) {
+        long[] rules = new long[count];
+        for (int i = 0; i < count; i++) {
+            rules[i] = random.nextLong() & ((1L << genomeBits) - 1);
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,82 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Checks that a seeded run stopped part way, with its checkpoint written by
+ * run(), and resumed in a new GA ends with exactly the population of the same
+ * run left uninterrupted, for a plain run and for one that stops on a plateau.
+ */
+class CheckpointTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        Random random = new Random(12L);
+        long[] rows = Check.randomRows(random, 2000, 6);
+        long[][] split = { rows, Check.randomRows(random, 500, 6) };
+        GAConfig plain = GAConfig.builder().populationSize(60).maxGenerations(40).seed(99L).build();
+        GAConfig plateau = plain.toBuilder().maxGenerations(400).plateauGenerations(15).build();
+        for (GAConfig config : new GAConfig[] { plain, plateau }) {
+            for (int stopAt : new int[] { 1, 7, 20 }) {
+                check(config, split, stopAt);
+            }
+        }
+    }
+
+    /**
+     * function that compares an uninterrupted run with one stopped and resumed
+     *
+     * @param config, parameters of the run, without a checkpoint
+     * @param split,  training and testing rows
+     * @param stopAt, generation the first part of the interrupted run stops at
+     */
+    private static void check(GAConfig config, long[][] split, int stopAt) {
+        String name = (config.plateauGenerations > 0 ? "plateau run" : "plain run") + " stopped at " + stopAt;
+        GA whole = new GA(config, split, null, new Rng(config.seed));
+        GA.StopReason reason = whole.run();
+        whole.close();
+
+        File file;
+        try {
+            file = File.createTempFile("checkpoint", ".bin");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            // the first part writes its checkpoint every 3 generations and when it stops
+            GAConfig firstPart = config.toBuilder().maxGenerations(stopAt).checkpoint(file, 3).build();
+            GA first = new GA(firstPart, split, null, new Rng(config.seed));
+            first.run();
+            first.close();
+
+            // a new GA built from the checkpoint alone
+            GA resumed;
+            try {
+                resumed = new GA(config, split, null, file);
+            } catch (IOException e) {
+                Check.that(false, name + ": could not resume: " + e);
+                return;
+            }
+            Check.equal(stopAt, resumed.generation, name + ": generation of the checkpoint");
+            GA.StopReason resumedReason = resumed.run();
+            resumed.close();
+
+            Check.that(reason == resumedReason, name + ": stop reason " + resumedReason + " instead of " + reason);
+            Check.equal(whole.generation, resumed.generation, name + ": generations run");
+            int differing = 0;
+            for (int i = 0; i < whole.populationSize; i++) {
+                if (whole.population[i] != resumed.population[i]
+                        || Double.compare(whole.fitness[i], resumed.fitness[i]) != 0) {
+                    differing++;
+                }
+            }
+            Check.equal(0, differing, name + ": individuals that differ from the uninterrupted run");
+        } finally {
+            file.delete();
+        }
+    }
+}
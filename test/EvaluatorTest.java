@@ -0,0 +1,111 @@
+import java.util.Random;
+
+/**
+ * Checks that every fitness evaluator gives the same fitness and confusion
+ * counts as a plain loop over the rows, on random rules and rows, with and
+ * without a bitset of remaining rows, for the parallel evaluator both when it
+ * splits the population and when it splits the rows, and for the column
+ * evaluator on one thread and with the population split between threads.
+ */
+class EvaluatorTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        Random random = new Random(2L);
+        // features, rows, rules: a histogram-sized genome, one too wide for the
+        // histogram and the cache table, and enough rows for the row split
+        int[][] cases = { { 6, 1000, 300 }, { 6, 1000, 5 }, { 11, 3000, 200 }, { 6, 140000, 5 } };
+        for (int[] c : cases) {
+            int features = c[0];
+            long[] rows = Check.randomRows(random, c[1], features);
+            int labelBit = 2 * features;
+            long pairMask = Rules.pairMask(features);
+            long[] rules = Check.randomRules(random, c[2], labelBit + 1);
+            // wildcards in most pairs, so some rules cover a good share of rows
+            for (int i = 0; i < rules.length; i += 2) {
+                rules[i] |= random.nextLong() & random.nextLong() & ((1L << labelBit) - 1);
+            }
+            long[] remaining = new long[FeatureMatrix.words(rows.length)];
+            for (int r = 0; r < rows.length; r++) {
+                if (random.nextInt(3) > 0) {
+                    remaining[r >>> 6] |= 1L << r;
+                }
+            }
+            String name = features + " features, " + rows.length + " rows, " + rules.length + " rules";
+            for (long[] counted : new long[][] { null, remaining }) {
+                String label = name + (counted == null ? "" : ", remaining rows");
+                int[] expected = reference(rules, rows, counted, labelBit, pairMask);
+                check("row scan " + label, new RowScanEvaluator(rows, labelBit, pairMask, counted), rules,
+                        expected);
+                check("parallel " + label, new ParallelEvaluator(rows, labelBit, pairMask, counted, 3), rules,
+                        expected);
+                check("columns " + label, new ColumnEvaluator(rows, labelBit, pairMask, counted), rules, expected);
+                check("columns, 3 threads, " + label, new ColumnEvaluator(rows, labelBit, pairMask, counted, 3),
+                        rules, expected);
+                if (features <= HistogramEvaluator.maxFeatures) {
+                    check("histogram " + label, new HistogramEvaluator(rows, labelBit, features, counted), rules,
+                            expected);
+                }
+                check("cache " + label, new FitnessCache(new RowScanEvaluator(rows, labelBit, pairMask, counted),
+                        labelBit + 1, 64), rules, expected);
+                check("create " + label, FitnessEvaluator.create(rows, labelBit, pairMask, counted, 2), rules,
+                        expected);
+            }
+        }
+    }
+
+    /**
+     * function that checks the fitness and confusion counts of an evaluator,
+     * twice so a cache answers from what it stored, and then closes it
+     *
+     * @param name,      evaluator and data, for the messages
+     * @param evaluator, the evaluator
+     * @param rules,     packed rules
+     * @param expected,  TP, FP, FN and TN of rule i at 4 * i
+     */
+    private static void check(String name, FitnessEvaluator evaluator, long[] rules, int[] expected) {
+        for (int pass = 0; pass < 2; pass++) {
+            double[] fitness = new double[rules.length];
+            evaluator.evaluate(rules, rules.length, fitness);
+            int[] counts = new int[4 * rules.length];
+            evaluator.confusion(rules, rules.length, counts);
+            int wrongFitness = 0;
+            int wrongCounts = 0;
+            for (int i = 0; i < rules.length; i++) {
+                int o = 4 * i;
+                double f = RowScanEvaluator.fitness(expected[o], expected[o + 1], expected[o + 2], expected[o + 3]);
+                if (Double.compare(f, fitness[i]) != 0) {
+                    wrongFitness++;
+                }
+                for (int k = 0; k < 4; k++) {
+                    if (counts[o + k] != expected[o + k]) {
+                        wrongCounts++;
+                    }
+                }
+            }
+            Check.equal(0, wrongFitness, name + ", pass " + pass + ": rules with a different fitness");
+            Check.equal(0, wrongCounts, name + ", pass " + pass + ": differing confusion counts");
+        }
+        evaluator.close();
+    }
+
+    // function that counts TP, FP, FN and TN of every rule the obvious way
+    private static int[] reference(long[] rules, long[] rows, long[] remaining, int labelBit, long pairMask) {
+        int[] counts = new int[4 * rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            for (int r = 0; r < rows.length; r++) {
+                if (remaining != null && (remaining[r >>> 6] >>> r & 1L) == 0) {
+                    continue;
+                }
+                boolean covers = Rules.covers(rules[i], rows[r], pairMask);
+                boolean equal = Rules.bit(rules[i], labelBit) == Rules.bit(rows[r], labelBit);
+                counts[4 * i + (covers ? 0 : 2) + (equal ? 0 : 1)]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.Random;
+
+/**
+ * Checks the branch-and-bound search against brute force: on small registries
+ * every rule of the genome is scored and the search must find the same best
+ * fitness, the same (lowest) best rule and the same number of rules above a
+ * threshold, with one thread and with several.
+ */
+class ExactSearchTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        Random random = new Random(22L);
+        for (int t = 0; t < 40; t++) {
+            int features = 1 + random.nextInt(6);
+            int labelBit = 2 * features;
+            long[] rows = new long[1 + random.nextInt(400)];
+            for (int r = 0; r < rows.length; r++) {
+                // a third of the sets have 00 and 11 pairs in the rows as well
+                long row = 0L;
+                for (int f = 0; f < features; f++) {
+                    row |= (long) (t % 3 == 0 ? random.nextInt(4) : 1 + random.nextInt(2)) << (2 * f);
+                }
+                // the label leans on feature 0, so the best rule is not trivial
+                int yes = (row & 1L) != 0 ? random.nextInt(4) : random.nextInt(3) / 2;
+                rows[r] = row | (long) (yes > 0 ? 1 : 0) << labelBit;
+            }
+
+            int space = 1 << (labelBit + 1);
+            long[] all = new long[space];
+            for (int i = 0; i < space; i++) {
+                all[i] = i;
+            }
+            double[] fitness = new double[space];
+            new RowScanEvaluator(rows, labelBit, Rules.pairMask(features)).evaluate(all, space, fitness);
+            double best = -1.0;
+            long bestRule = -1L;
+            for (int i = 0; i < space; i++) {
+                if (fitness[i] > best) {
+                    best = fitness[i];
+                    bestRule = i;
+                }
+            }
+            double threshold = fitness[random.nextInt(space)];
+            long above = 0;
+            for (int i = 0; i < space; i++) {
+                if (fitness[i] > threshold) {
+                    above++;
+                }
+            }
+
+            String name = "set " + t + " (" + features + " features, " + rows.length + " rows)";
+            for (int threads : new int[] { 1, 3 }) {
+                ExactSearch search = new ExactSearch(rows, labelBit, features, threads, 8);
+                search.search(0.0);
+                Check.that(search.exact, name + ": searched exactly");
+                Check.equal(best, search.fitness, name + ", " + threads + " threads: best fitness");
+                Check.equal(best, fitness[(int) search.rule], name + ", " + threads + " threads: fitness of the rule");
+                if (best > 0) {
+                    // a rule with a 00 pair covers nothing, so the lowest best
+                    // rule is in the lattice
+                    Check.equal(bestRule, search.rule, name + ", " + threads + " threads: best rule");
+                }
+                Check.equal(above, search.countAbove(threshold), name + ", " + threads + " threads: rules above "
+                        + threshold);
+            }
+        }
+
+        // above the exact limit the beam search gives a rule it scored correctly
+        int features = ExactSearch.maxExactFeatures + 4;
+        long[] rows = Check.randomRows(random, 3000, features);
+        ExactSearch beam = new ExactSearch(rows, 2 * features, features, 1, 16);
+        beam.search(0.0);
+        double[] fitness = new double[1];
+        new RowScanEvaluator(rows, 2 * features, Rules.pairMask(features)).evaluate(new long[] { beam.rule }, 1,
+                fitness);
+        Check.that(!beam.exact, "beam search reported as not exact");
+        Check.equal(fitness[0], beam.fitness, "fitness of the beam search's rule");
+    }
+}
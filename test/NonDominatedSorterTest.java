@@ -0,0 +1,189 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Checks the fast non-dominated sort against a brute-force sort that peels off
+ * the non-dominated points one front at a time, on points with many ties and
+ * duplicates, and the crowding distances against the textbook formula on
+ * points whose objectives are all distinct.
+ */
+class NonDominatedSorterTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        Random random = new Random(21L);
+        NonDominatedSorter sorter = new NonDominatedSorter(4, 300);
+        int wrongRanks = 0;
+        int wrongFronts = 0;
+        int wrongGroups = 0;
+        int wrongCrowding = 0;
+        int unsorted = 0;
+        for (int t = 0; t < 400; t++) {
+            int n = 1 + random.nextInt(300);
+            int objectives = 1 + random.nextInt(4);
+            // small integers give ties and duplicates, doubles distinct values
+            boolean distinct = t % 2 == 1;
+            double[] values = new double[n * objectives];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = distinct ? random.nextDouble() : random.nextInt(6);
+            }
+            NonDominatedSorter s = objectives == 4 ? sorter : new NonDominatedSorter(objectives, n);
+            int fronts = s.sort(values, n);
+
+            int[] rank = bruteForceRanks(values, n, objectives);
+            int expectedFronts = 0;
+            for (int i = 0; i < n; i++) {
+                if (rank[i] != s.rank[i]) {
+                    wrongRanks++;
+                }
+                expectedFronts = Math.max(expectedFronts, rank[i] + 1);
+            }
+            if (fronts != expectedFronts || s.fronts != expectedFronts) {
+                wrongFronts++;
+            }
+
+            // byFront holds every point once, in the range of its front
+            boolean[] seen = new boolean[n];
+            for (int f = 0; f < s.fronts; f++) {
+                for (int k = s.frontStart[f]; k < s.frontStart[f + 1]; k++) {
+                    int p = s.byFront[k];
+                    if (seen[p] || s.rank[p] != f) {
+                        wrongGroups++;
+                    }
+                    seen[p] = true;
+                }
+            }
+            if (s.frontStart[s.fronts] != n) {
+                wrongGroups++;
+            }
+
+            if (distinct) {
+                for (int f = 0; f < s.fronts; f++) {
+                    int from = s.frontStart[f];
+                    int[] members = Arrays.copyOfRange(s.byFront, from, s.frontStart[f + 1]);
+                    double[] expected = bruteForceCrowding(values, objectives, members);
+                    for (int k = 0; k < members.length; k++) {
+                        double actual = s.crowding[members[k]];
+                        if (!(actual == expected[k] || Math.abs(actual - expected[k]) < 1e-12)) {
+                            wrongCrowding++;
+                        }
+                    }
+                }
+            }
+
+            int front = random.nextInt(s.fronts);
+            s.sortByCrowding(front);
+            for (int k = s.frontStart[front] + 1; k < s.frontStart[front + 1]; k++) {
+                if (s.crowding[s.byFront[k]] > s.crowding[s.byFront[k - 1]]) {
+                    unsorted++;
+                }
+            }
+        }
+        Check.equal(0, wrongRanks, "points in a different front from the brute-force sort");
+        Check.equal(0, wrongFronts, "sorts with a different number of fronts");
+        Check.equal(0, wrongGroups, "points missing, repeated or misplaced in byFront");
+        Check.equal(0, wrongCrowding, "crowding distances that differ from the textbook formula");
+        Check.equal(0, unsorted, "fronts out of order after sortByCrowding");
+
+        // after a short NSGA-II run no parent dominates a member of its first front
+        long[][] split = { Check.randomRows(random, 3000, 6), Check.randomRows(random, 500, 6) };
+        GAConfig config = GAConfig.builder().populationSize(200).maxGenerations(15).seed(5L).build();
+        Nsga2 nsga = new Nsga2(config, split, new Rng(config.seed));
+        nsga.run();
+        nsga.close();
+        int dominated = 0;
+        for (int i = 0; i < config.populationSize; i++) {
+            for (int j = 0; j < config.populationSize && nsga.rank[i] == 0; j++) {
+                if (dominates(nsga.values, Nsga2.objectives, j, i)) {
+                    dominated++;
+                    break;
+                }
+            }
+        }
+        Check.equal(0, dominated, "members of the NSGA-II front dominated by another parent");
+        Check.that(nsga.paretoFront().length > 0, "NSGA-II front is not empty");
+    }
+
+    // function that returns the front of every point by repeatedly removing the
+    // points no remaining point dominates
+    private static int[] bruteForceRanks(double[] values, int n, int objectives) {
+        int[] rank = new int[n];
+        Arrays.fill(rank, -1);
+        int assigned = 0;
+        for (int front = 0; assigned < n; front++) {
+            boolean[] inFront = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                if (rank[i] >= 0) {
+                    continue;
+                }
+                boolean dominated = false;
+                for (int j = 0; j < n && !dominated; j++) {
+                    dominated = j != i && rank[j] < 0 && dominates(values, objectives, j, i);
+                }
+                inFront[i] = !dominated;
+            }
+            for (int i = 0; i < n; i++) {
+                if (inFront[i]) {
+                    rank[i] = front;
+                    assigned++;
+                }
+            }
+        }
+        return rank;
+    }
+
+    // true if point a is at least as good as b in every objective and better in one
+    private static boolean dominates(double[] values, int objectives, int a, int b) {
+        boolean better = false;
+        for (int k = 0; k < objectives; k++) {
+            double x = values[a * objectives + k];
+            double y = values[b * objectives + k];
+            if (x < y) {
+                return false;
+            }
+            better |= x > y;
+        }
+        return better;
+    }
+
+    // function that works out the crowding distance of the members of a front:
+    // infinite at the ends of every objective, otherwise the sum over the
+    // objectives of the gap between the neighbours over the range
+    private static double[] bruteForceCrowding(double[] values, int objectives, int[] members) {
+        int m = members.length;
+        double[] distance = new double[m];
+        if (m <= 2) {
+            Arrays.fill(distance, Double.POSITIVE_INFINITY);
+            return distance;
+        }
+        for (int k = 0; k < objectives; k++) {
+            final int objective = k;
+            Integer[] order = new Integer[m];
+            for (int i = 0; i < m; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(values[members[a] * objectives + objective],
+                            values[members[b] * objectives + objective]);
+                }
+            });
+            double low = values[members[order[0]] * objectives + k];
+            double high = values[members[order[m - 1]] * objectives + k];
+            distance[order[0]] = Double.POSITIVE_INFINITY;
+            distance[order[m - 1]] = Double.POSITIVE_INFINITY;
+            for (int i = 1; i < m - 1; i++) {
+                double gap = values[members[order[i + 1]] * objectives + k]
+                        - values[members[order[i - 1]] * objectives + k];
+                distance[order[i]] += gap / (high - low);
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Checks the packed mutation and crossover against the int[] operators of the
+ * original GA, drawing the same points from generators with the same seeds,
+ * over every bit of the genome including mutations whose two points are the
+ * same bit.
+ */
+class OperatorsTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        int bits = IndicatorRegistry.standard.genomeBits();
+        int wrongMutations = 0;
+        int samePoint = 0;
+        int samePointNotOneBit = 0;
+        int wrongCrossovers = 0;
+        for (long seed = 0; seed < 20000; seed++) {
+            Rng parents = new Rng(~seed);
+            long p1 = GA.randomRule(bits, parents);
+            long p2 = GA.randomRule(bits, parents);
+
+            Rng old = new Rng(seed);
+            int point1 = old.nextInt(bits);
+            int point2 = old.nextInt(bits);
+            long expected = pack(oldMutation(unpack(p1, bits), point1, point2));
+            long offspring = GA.twoPointMutation(p1, bits, new Rng(seed));
+            if (offspring != expected) {
+                wrongMutations++;
+            }
+            if (point1 == point2) {
+                samePoint++;
+                if (Long.bitCount(offspring ^ p1) != 1) {
+                    samePointNotOneBit++;
+                }
+            }
+
+            old = new Rng(seed);
+            int[][] expectedPair = oldCrossover(unpack(p1, bits), unpack(p2, bits), old);
+            long[] pair = new long[2];
+            GA.twoPointCrossover(p1, p2, pair, 0, bits, new Rng(seed));
+            if (pair[0] != pack(expectedPair[0]) || pair[1] != pack(expectedPair[1])) {
+                wrongCrossovers++;
+            }
+        }
+        Check.equal(0, wrongMutations, "mutations that differ from the int[] mutation");
+        Check.that(samePoint > 0, "some mutations draw the same point twice");
+        Check.equal(0, samePointNotOneBit, "same-point mutations that do not flip exactly one bit");
+        Check.equal(0, wrongCrossovers, "crossovers that differ from the int[] crossover");
+    }
+
+    // the mutation of the original GA, given its two points
+    private static int[] oldMutation(int[] parent, int point1, int point2) {
+        int[] offspring = new int[parent.length];
+        for (int i = 0; i < parent.length; i++) {
+            if (i == point1 || i == point2) {
+                offspring[i] = parent[i] == 0 ? 1 : 0;
+            } else {
+                offspring[i] = parent[i];
+            }
+        }
+        return offspring;
+    }
+
+    // the crossover of the original GA
+    private static int[][] oldCrossover(int[] p1, int[] p2, Rng random) {
+        int bits = p1.length;
+        int[][] offspring = new int[2][bits];
+        int startPoint = random.nextInt(bits / 2);
+        int endPoint = random.nextInt(bits);
+        while (endPoint <= startPoint) {
+            endPoint = random.nextInt(bits);
+        }
+        boolean startFound = false;
+        boolean endFound = false;
+        for (int i = 0; i < bits; i++) {
+            if (i == endPoint) {
+                endFound = true;
+            }
+            if (i == startPoint || (startFound && !endFound)) {
+                startFound = true;
+                offspring[0][i] = p2[i];
+                offspring[1][i] = p1[i];
+            } else {
+                offspring[0][i] = p1[i];
+                offspring[1][i] = p2[i];
+            }
+        }
+        return offspring;
+    }
+
+    private static int[] unpack(long packed, int bits) {
+        int[] values = new int[bits];
+        for (int i = 0; i < bits; i++) {
+            values[i] = Rules.bit(packed, i);
+        }
+        return values;
+    }
+
+    private static long pack(int[] values) {
+        long packed = 0L;
+        for (int i = 0; i < values.length; i++) {
+            packed |= (long) values[i] << i;
+        }
+        return packed;
+    }
+}
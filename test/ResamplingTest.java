@@ -0,0 +1,52 @@
+import java.util.Random;
+
+/**
+ * Checks the resampling of SignificanceTest: the block permutation must use
+ * every label exactly once, so a rule that covers every row predicts as well
+ * under every permutation (p-value 1), whatever the block length; a rule that
+ * matches the labels must get a small p-value and an interval around its
+ * accuracy.
+ */
+class ResamplingTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        Random random = new Random(23L);
+        int features = 6;
+        int labelBit = 2 * features;
+        long pairMask = Rules.pairMask(features);
+        long coversAll = (1L << labelBit) - 1 | 1L << labelBit;
+        // row counts that leave a short last block for most block lengths
+        for (int rows : new int[] { 97, 250, 1001 }) {
+            long[] data = Check.randomRows(random, rows, features);
+            for (int blockLength : new int[] { 1, 7, 10, 64 }) {
+                SignificanceTest test = new SignificanceTest(data, labelBit, pairMask, 300, blockLength, 2);
+                SignificanceTest.Result result = test.test(coversAll, new Rng(rows + blockLength));
+                test.close();
+                String name = rows + " rows, blocks of " + blockLength;
+                Check.equal(rows, result.instances, name + ": rows covered by the all-wildcard rule");
+                Check.equal(1.0, result.pValue, name + ": p-value of a rule that covers every row");
+            }
+        }
+
+        // the label is feature 0, so the rule "feature 0 TRUE THEN YES" is right
+        // whenever it fires
+        long[] data = new long[1000];
+        for (int r = 0; r < data.length; r++) {
+            int feature = random.nextInt(2);
+            data[r] = Rules.packFeatures(feature | random.nextInt(64) & ~1, features, feature);
+        }
+        long rule = ((1L << labelBit) - 1) & ~2L | 1L << labelBit;
+        SignificanceTest test = new SignificanceTest(data, labelBit, pairMask, 2000, 10, 2);
+        SignificanceTest.Result result = test.test(rule, new Rng(5L));
+        test.close();
+        Check.equal(1.0, result.accuracy, "accuracy of a rule that matches the labels");
+        Check.that(result.pValue < 0.01, "p-value of a rule that matches the labels: " + result.pValue);
+        Check.that(result.low <= result.accuracy && result.accuracy <= result.high,
+                "interval [" + result.low + ", " + result.high + "] around the accuracy");
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Checks the packed rules against the int[] representation they replaced:
+ * Rules.covers must agree with the old pair-by-pair loop for every rule and
+ * instance of the six features.
+ */
+class RulesTest {
+
+    public static void main(String[] args) {
+        run();
+        Check.exit();
+    }
+
+    static void run() {
+        Check.equal(0x555L, Rules.PAIR_MASK, "pair mask of the six standard features");
+        Check.equal(IndicatorRegistry.standard.pairMask(), Rules.PAIR_MASK, "pair mask of the standard registry");
+
+        // every 13-bit rule against every instance of the six features
+        int features = 6;
+        int mismatches = 0;
+        for (int f = 0; f < 1 << features; f++) {
+            int[] line = line(f, features, f & 1);
+            int[] instance = oneHot(line, features);
+            long packed = Rules.packInstance(line, features);
+            Check.equal(Rules.packFeatures(f, features, f & 1), packed, "packFeatures of " + f);
+            Check.equal(pack(instance), packed, "packInstance of " + f);
+            for (int r = 0; r < 1 << (2 * features + 1); r++) {
+                if (Rules.covers(r, packed, Rules.PAIR_MASK) != oldCovers(unpack(r, 2 * features + 1), instance,
+                        features)) {
+                    mismatches++;
+                }
+            }
+        }
+        Check.equal(0, mismatches, "rules where covers differs from the int[] loop");
+    }
+
+    // the covers() of the original GA, over any number of features
+    static boolean oldCovers(int[] rule, int[] instance, int features) {
+        int p = 0;
+        boolean endReturn = true;
+        for (int i = 0; i < features; i++) {
+            int length = 2;
+            boolean match = false;
+            int counter = 0;
+            for (int j = 0; j < length; j++) {
+                if (rule[p + j] == 1) {
+                    counter++;
+                    if (instance[p + j] == 1) {
+                        match = true;
+                    }
+                }
+            }
+            if ((counter != length) && !match) {
+                endReturn = false;
+            }
+            p += length;
+        }
+        return endReturn;
+    }
+
+    // function that returns the modelling output of a feature bitset and label
+    private static int[] line(long featureBits, int features, int label) {
+        int[] line = new int[features + 1];
+        for (int j = 0; j < features; j++) {
+            line[j] = (int) (featureBits >>> j & 1L);
+        }
+        line[features] = label;
+        return line;
+    }
+
+    // function that returns the old one-hot int[] instance of a line
+    private static int[] oneHot(int[] line, int features) {
+        int[] instance = new int[2 * features + 1];
+        for (int j = 0; j < features; j++) {
+            instance[2 * j] = line[j];
+            instance[2 * j + 1] = 1 - line[j];
+        }
+        instance[2 * features] = line[features];
+        return instance;
+    }
+
+    private static int[] unpack(long packed, int bits) {
+        int[] values = new int[bits];
+        for (int i = 0; i < bits; i++) {
+            values[i] = Rules.bit(packed, i);
+        }
+        return values;
+    }
+
+    private static long pack(int[] values) {
+        long packed = 0L;
+        for (int i = 0; i < values.length; i++) {
+            packed |= (long) values[i] << i;
+        }
+        return packed;
+    }
+}
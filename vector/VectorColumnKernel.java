@@ -0,0 +1,72 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Column kernel on the incubating Vector API. Every step covers one vector of
+ * column words, 256 rows with AVX2 and 512 with AVX-512, and the popcounts are
+ * accumulated per lane and added up once at the end. The words left over after
+ * the last full vector are counted one at a time.
+ * 
+ * It needs the jdk.incubator.vector module, so it is kept out of the main
+ * sources and compiled on its own after them:
+ * 
+ * javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorColumnKernel.java
+ * 
+ * and the module is added when running, --add-modules jdk.incubator.vector.
+ * ColumnEvaluator finds this class by name and falls back to its scalar kernel
+ * when the class or the module is missing.
+ */
+class VectorColumnKernel implements ColumnEvaluator.ColumnKernel {
+
+    private static final VectorSpecies<Long> species = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void count(long[][] columns, long[] labels, long[] valid, long[] select, long[] wildcard, long labelMask,
+            long[] counts) {
+        int words = valid.length;
+        int features = wildcard.length;
+        int bound = species.loopBound(words);
+        LongVector coveredLanes = LongVector.zero(species);
+        LongVector matchingLanes = LongVector.zero(species);
+        for (int w = 0; w < bound; w += species.length()) {
+            LongVector cover = LongVector.fromArray(species, valid, w);
+            for (int f = 0; f < features; f++) {
+                LongVector t = LongVector.fromArray(species, columns[2 * f], w).and(select[2 * f]);
+                LongVector n = LongVector.fromArray(species, columns[2 * f + 1], w).and(select[2 * f + 1]);
+                cover = cover.and(t.or(n).or(wildcard[f]));
+            }
+            LongVector match = cover
+                    .and(LongVector.fromArray(species, labels, w).lanewise(VectorOperators.XOR, labelMask).not());
+            coveredLanes = coveredLanes.add(bitCount(cover));
+            matchingLanes = matchingLanes.add(bitCount(match));
+        }
+        long covered = coveredLanes.reduceLanes(VectorOperators.ADD);
+        long matching = matchingLanes.reduceLanes(VectorOperators.ADD);
+        for (int w = bound; w < words; w++) {
+            long cover = valid[w];
+            for (int f = 0; f < features; f++) {
+                cover &= (columns[2 * f][w] & select[2 * f]) | (columns[2 * f + 1][w] & select[2 * f + 1])
+                        | wildcard[f];
+            }
+            covered += Long.bitCount(cover);
+            matching += Long.bitCount(cover & ~(labels[w] ^ labelMask));
+        }
+        counts[0] = covered;
+        counts[1] = matching;
+    }
+
+    @Override
+    public String name() {
+        return "vector" + species.vectorBitSize();
+    }
+
+    // function that counts the set bits of every lane (SWAR, as the JDK 17 API
+    // has no lane-wise bit count)
+    private static LongVector bitCount(LongVector x) {
+        x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+        x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0f0f0f0f0f0f0f0fL);
+        return x.mul(0x0101010101010101L).lanewise(VectorOperators.LSHR, 56);
+    }
+}